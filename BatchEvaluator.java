@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scores up to eight sibling leaf boards in one pass with the same streak heuristic as
+ * MinimaxBoard.findStreak.
+ *
+ * The boards are loaded into a struct-of-arrays layout: for each square, one long holds a byte
+ * lane per board marking the player's counters, and another marks the spaces. Streak lengths and
+ * space counts are kept the same way, so each step of the streak search updates all eight boards
+ * with a few branch free long operations.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see MinimaxBoard.java
+ *
+ */
+public class BatchEvaluator {
+	public static final int LANES = 8;
+	private static final int HEIGHT = Board.BOARD_HEIGHT;
+	private static final int WIDTH = Board.BOARD_WIDTH;
+	//Lowest and highest bit of every byte lane
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	//Square indexes of every diagonal, in the order the streak search follows them
+	private static final int[][] ASCENDING = diagonals(-1, 1);
+	private static final int[][] DESCENDING = diagonals(-1, -1);
+
+	private final long[] own = new long[HEIGHT * WIDTH];
+	private final long[] spaces = new long[HEIGHT * WIDTH];
+	private final int[] totals = new int[LANES];
+	private int size;
+
+	/**
+	 * Removes all boards from the batch.
+	 */
+	void clear() {
+		Arrays.fill(own, 0);
+		Arrays.fill(spaces, 0);
+		size = 0;
+	}
+
+	/**
+	 * Accessor for the number of boards in the batch.
+	 * @return size
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a board to the next free lane of the batch.
+	 * @param board
+	 * 		the board to score
+	 * @param player
+	 * 		the player counter the board is scored for
+	 * @return lane
+	 * 		the lane holding the board
+	 */
+	int add(Board board, char player) {
+		if (size == LANES) {
+			throw new IllegalStateException("Batch holds at most " + LANES + " boards");
+		}
+		char[][] squares = board.getBoard();
+		int lane = size++;
+		long bit = 1L << (lane * 8);
+		for (int row = 0; row < HEIGHT; row++) {
+			for (int column = 0; column < WIDTH; column++) {
+				char square = squares[row][column];
+				if (square == player) {
+					own[row * WIDTH + column] |= bit;
+				} else if (square == Board.BOARD_SPACE) {
+					spaces[row * WIDTH + column] |= bit;
+				}
+			}
+		}
+		return lane;
+	}
+
+	/**
+	 * Scores every board in the batch.
+	 * @param gameWinAmount
+	 * 		the number of counters in a row needed to win
+	 * @param streakBonus
+	 * 		the bonus for each vertical or horizontal streak of 3 or more, at most
+	 * 		SearchParameters.MAX_VALUE
+	 * @param scores
+	 * 		receives the score of each board in lane order
+	 */
+	void evaluate(int gameWinAmount, int streakBonus, int[] scores) {
+		Arrays.fill(totals, 0);
+		//Each pass scores under 256 per lane, so lane sums are added to the totals between passes
+		addLanes(verticalStreaks(gameWinAmount, streakBonus));
+		addLanes(horizontalStreaks(gameWinAmount, streakBonus));
+		addLanes(diagonalStreaks(gameWinAmount, ASCENDING));
+		addLanes(diagonalStreaks(gameWinAmount, DESCENDING));
+		System.arraycopy(totals, 0, scores, 0, size);
+	}
+
+	/**
+	 * Scores the vertical streaks, scanning each column from the bottom.
+	 * @return lanes
+	 * 		the score of each board in its byte lane
+	 */
+	private long verticalStreaks(int gameWinAmount, int streakBonus) {
+		long score = 0;
+		for (int column = 0; column < WIDTH; column++) {
+			long lineStreak = 0;
+			long space = 0;
+			for (int row = HEIGHT - 1; row >= 0; row--) {
+				int square = row * WIDTH + column;
+				//Another player's counter ends the streak but not the space count
+				long open = (own[square] | spaces[square]) * 0xFF;
+				lineStreak = (lineStreak & open) + own[square];
+				space += spaces[square];
+			}
+			score += streakScore(gameWinAmount, lineStreak, space, streakBonus);
+		}
+		return score;
+	}
+
+	/**
+	 * Scores the horizontal streaks, scanning each row from the left and scoring each run of
+	 * counters and spaces ended by another player's counter or the board edge.
+	 * @return lanes
+	 * 		the score of each board in its byte lane
+	 */
+	private long horizontalStreaks(int gameWinAmount, int streakBonus) {
+		long score = 0;
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			long lineStreak = 0;
+			long space = 0;
+			for (int column = 0; column < WIDTH; column++) {
+				int square = row * WIDTH + column;
+				long open = (own[square] | spaces[square]) * 0xFF;
+				score += streakScore(gameWinAmount, lineStreak, space, streakBonus) & ~open;
+				lineStreak = (lineStreak + own[square]) & open;
+				space = (space + spaces[square]) & open;
+			}
+			score += streakScore(gameWinAmount, lineStreak, space, streakBonus);
+		}
+		return score;
+	}
+
+	/**
+	 * Scores the diagonal streaks in one direction. The streak search scores a walk from every
+	 * square that is not another player's counter, up to another player's counter or the edge.
+	 * Walking each diagonal backwards gives the counts of all those walks in a single pass, as the
+	 * counts from a square are its own plus those from the next square, restarting at another
+	 * player's counter.
+	 * @param diagonals
+	 * 		square indexes of each diagonal in walking order
+	 * @return lanes
+	 * 		the score of each board in its byte lane
+	 */
+	private long diagonalStreaks(int gameWinAmount, int[][] diagonals) {
+		long score = 0;
+		for (int[] diagonal : diagonals) {
+			long lineStreak = 0;
+			long space = 0;
+			for (int k = diagonal.length - 1; k >= 0; k--) {
+				int square = diagonal[k];
+				long open = (own[square] | spaces[square]) * 0xFF;
+				lineStreak = (lineStreak + own[square]) & open;
+				space = (space + spaces[square]) & open;
+				score += streakScore(gameWinAmount, lineStreak, space, 0);
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Lists the squares of every diagonal in one direction.
+	 * @param rowStep
+	 * 		row direction of the diagonal
+	 * @param columnStep
+	 * 		column direction of the diagonal
+	 * @return diagonals
+	 * 		square indexes (row * width + column) of each diagonal in walking order
+	 */
+	private static int[][] diagonals(int rowStep, int columnStep) {
+		List<int[]> result = new ArrayList<int[]>();
+		for (int row = 0; row < HEIGHT; row++) {
+			for (int column = 0; column < WIDTH; column++) {
+				int previousRow = row - rowStep;
+				int previousColumn = column - columnStep;
+				//A diagonal starts where the previous square is off the board
+				if (previousRow < 0 || previousRow >= HEIGHT || previousColumn < 0 || previousColumn >= WIDTH) {
+					int length = 0;
+					while (row + length * rowStep >= 0 && row + length * rowStep < HEIGHT
+							&& column + length * columnStep >= 0 && column + length * columnStep < WIDTH) {
+						length++;
+					}
+					int[] squares = new int[length];
+					for (int k = 0; k < length; k++) {
+						squares[k] = (row + k * rowStep) * WIDTH + column + k * columnStep;
+					}
+					result.add(squares);
+				}
+			}
+		}
+		return result.toArray(new int[result.size()][]);
+	}
+
+	/**
+	 * Adds the byte lanes of a pass score to the lane totals.
+	 */
+	private void addLanes(long lanes) {
+		for (int lane = 0; lane < LANES; lane++) {
+			totals[lane] += (int) (lanes >>> (lane * 8)) & 0xFF;
+		}
+	}
+
+	/**
+	 * Score of one streak in every lane: its length if enough spaces remain to complete it and it
+	 * is longer than one counter, with the bonus added for streaks of 3 or more.
+	 * Lane values stay below 128, so adding to a lane sets its top bit exactly when the value
+	 * reaches the threshold, without carrying into the next lane.
+	 */
+	private static long streakScore(int gameWinAmount, long lineStreak, long space, int bonus) {
+		long counted = (lineStreak + space + (0x80 - gameWinAmount) * LOW_BITS) & (lineStreak + 0x7E * LOW_BITS) & HIGH_BITS;
+		long score = lineStreak & ((counted >>> 7) * 0xFF);
+		if (bonus > 0) {
+			score += (((lineStreak + 0x7D * LOW_BITS) & counted) >>> 7) * bonus;
+		}
+		return score;
+	}
+}
\ No newline at end of file
@@ -100,6 +100,26 @@ public class Board {
 		return placed;
 	}
 
+	/**
+	 * Removes the top counter of a column, undoing placeCounter.
+	 * @param position
+	 * 		The position on the board to remove the counter from.
+	 * @return removed
+	 * 		True if a counter has been removed, false if column is empty.
+	 */
+	boolean removeCounter(int position) {
+		boolean removed = false;
+		//Searches from top to find first counter.
+		for (int row = 0; row < BOARD_HEIGHT; row++) {
+			if (board[row][position - 1] != BOARD_SPACE) {
+				board[row][position - 1] = BOARD_SPACE;
+				removed = true;
+				break;
+			}
+		}
+		return removed;
+	}
+
 	/**
 	 * Searches for winning line on board in any direction.
 	 * @return hasWon
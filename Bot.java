@@ -1,8 +1,19 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a robot player of the game.
  * 
+ * Moves requested asynchronously are searched on a search scheduler, shared by every robot
+ * unless one is set. After each such move the robot predicts the position it will face from the
+ * line its search expects, and searches it in the background until its next move is requested,
+ * so its transposition table is already filled when the prediction is right.
+ * Before each move the robot tries to prove a forced win with a short proof-number search, and
+ * plays the proven line without searching while the proof holds.
+ * 
  * @author Jordan Koulouris
  * @version 1.0
  * @release 12/01/2018
@@ -10,16 +21,391 @@ import java.util.Random;
  *
  */
 public class Bot extends Player {
+	//System properties naming a table file shared across games and processes, and its size
+	static final String TABLE_PROPERTY = "connectn.table";
+	static final String TABLE_SLOTS_PROPERTY = "connectn.tableSlots";
+	//System property naming a tablebase file for the searches to score its positions exactly
+	static final String TABLEBASE_PROPERTY = "connectn.tablebase";
+	//System property seeding the fallback column choice, so games can be replayed exactly
+	static final String SEED_PROPERTY = "connectn.seed";
+	//System property naming an n-tuple weights file to evaluate positions with
+	static final String EVALUATOR_PROPERTY = "connectn.ntuple";
+	//System property naming a tuned search parameters file
+	static final String PARAMETERS_PROPERTY = "connectn.parameters";
+	//System properties capping the memory of every robot's searches in the process, and in each game
+	static final String MEMORY_PROPERTY = "connectn.memory";
+	static final String GAME_MEMORY_PROPERTY = "connectn.gameMemory";
+	static final int DEPTH = 6;
+	//Selective search settings
+	static final int FULL_DEPTH_MOVES = 3;
+	static final int REDUCTION_PLIES = 1;
+	static final int EXTENSION_PLIES = 1;
+	static final int MAX_EXTENSIONS = 1;
+	//System property setting the proof-number search nodes tried before each move
+	static final String PROOF_NODES_PROPERTY = "connectn.proofNodes";
+	//Proof-number search nodes tried before each move by default, and positions its table holds
+	static final long PROOF_NODES = 1000;
+	static final int PROOF_SLOTS = 1 << 14;
+	//Deadline of asynchronous moves requested without one, far enough never to be reached
+	private static final long NO_DEADLINE = 24L * 60 * 60 * 1000000000;
+	private static SearchScheduler sharedScheduler;
+	private static MappedTranspositionTable persistentTable;
+	private static NTupleEvaluator evaluator;
+	private static boolean evaluatorLoaded;
+	private static SearchParameters parameters;
+	private static boolean parametersLoaded;
+	private static Tablebase tablebase;
+	private static boolean tablebaseLoaded;
+	private static MemoryBudget sharedBudget;
+	private static boolean budgetLoaded;
 	BotSearch search;
 	Random turn;
+	private long nodeBudget;
+	private long moveMillis;
+	private SearchScheduler scheduler;
+	private String game;
+	private long deadlineMillis;
+	private boolean pondering = true;
+	private CompletableFuture<Integer> ponder;
+	private Board ponderBoard;
+	private long ponders;
+	private long ponderHits;
+	private MemoryBudget budget;
+	private String budgetGame;
+	private long proofNodes = Math.max(Long.getLong(PROOF_NODES_PROPERTY, PROOF_NODES), 0);
+	private ProofNumberSearch proof;
+	private long provenMoves;
 
 	/**
 	 * Calls Player constructor and initialises BotSearch and Random object.
 	 */
 	public Bot() {
 		super();
-		search = new BotSearch(counter.getSymbol());
-		turn = new Random();
+		initialise();
+	}
+	
+	/**
+	 * Calls Player constructor with a given symbol and initialises BotSearch and Random object.
+	 * @param symbol
+	 * 		the player symbol
+	 */
+	public Bot(char symbol) {
+		super(symbol);
+		initialise();
+	}
+	
+	/**
+	 * Calls Player constructor with a given symbol, and searches within a memory budget starting
+	 * from the smallest table, so no full size table is allocated that the budget cannot hold.
+	 * @param symbol
+	 * 		the player symbol
+	 * @param budget
+	 * 		the budget shared by every robot in the process
+	 * @param game
+	 * 		name of the game the robot plays in
+	 */
+	public Bot(char symbol, MemoryBudget budget, String game) {
+		super(symbol);
+		this.budget = budget;
+		this.budgetGame = game;
+		initialise();
+	}
+	
+	/**
+	 * Initialises the search with the shared table if one is configured for the search's settings,
+	 * and the Random object.
+	 */
+	private void initialise() {
+		budget = (budget != null) ? budget : memoryBudget();
+		//The table is chosen once the settings are known, as the table file only holds scores of its own
+		search = new BotSearch(counter.getSymbol(), null);
+		configure(search);
+		search.setEvaluator(evaluator());
+		search.setParameters(parameters());
+		search.setTablebase(tablebase());
+		TranspositionTable table = persistentTable(search.getFingerprint());
+		search.setTranspositionTable((table != null) ? table : ownTable());
+		
+		//Seed differently per player so robots do not mirror each other's fallback choices
+		Long seed = Long.getLong(SEED_PROPERTY);
+		turn = (seed != null) ? new Random(seed + Counter.indexOf(counter.getSymbol())) : new Random();
+	}
+	
+	/**
+	 * Applies the robot player's search settings to a search.
+	 * @param search
+	 * 		the search to configure
+	 */
+	static void configure(BotSearch search) {
+		search.setLateMoveReductions(FULL_DEPTH_MOVES, REDUCTION_PLIES);
+		search.setThreatExtensions(EXTENSION_PLIES, MAX_EXTENSIONS);
+	}
+	
+	/**
+	 * Seeds the random choice of column used when the search returns a full column.
+	 * @param seed
+	 * 		the seed
+	 */
+	public void setRandomSeed(long seed) {
+		turn.setSeed(seed);
+	}
+	
+	/**
+	 * Creates a table for the robot's searches alone. Within a memory budget it starts from the
+	 * smallest table, which the budget grows to what it can hold before the first move.
+	 * @return table
+	 */
+	private TranspositionTable ownTable() {
+		return new TranspositionTable((budget != null) ? MemoryBudget.MIN_SLOTS : BotSearch.TABLE_SLOTS);
+	}
+	
+	/**
+	 * Opens the table file named by the connectn.table property once per process.
+	 * @param fingerprint
+	 * 		fingerprint of the settings of the search to use the table
+	 * @return table
+	 * 		the shared mapped table, or null if none is configured, it cannot be opened or it holds
+	 * 		scores of other settings
+	 */
+	private static synchronized MappedTranspositionTable persistentTable(long fingerprint) {
+		String file = System.getProperty(TABLE_PROPERTY);
+		if (persistentTable == null && file != null) {
+			int slots = Integer.getInteger(TABLE_SLOTS_PROPERTY, BotSearch.TABLE_SLOTS);
+			persistentTable = MappedTranspositionTable.openOrNull(Paths.get(file), slots, fingerprint);
+		}
+		return (persistentTable != null && persistentTable.getFingerprint() == fingerprint) ? persistentTable : null;
+	}
+	
+	/**
+	 * Stops using the table file once the robot's settings no longer match the scores it holds.
+	 */
+	private void checkTable() {
+		TranspositionTable table = search.getTranspositionTable();
+		if (table instanceof MappedTranspositionTable
+				&& ((MappedTranspositionTable) table).getFingerprint() != search.getFingerprint()) {
+			search.setTranspositionTable(ownTable());
+		}
+	}
+	
+	/**
+	 * Loads the weights file named by the connectn.ntuple property once per process.
+	 * @return evaluator
+	 * 		the learned evaluator, or null if none is configured or it cannot be read
+	 */
+	private static synchronized NTupleEvaluator evaluator() {
+		String file = System.getProperty(EVALUATOR_PROPERTY);
+		if (!evaluatorLoaded && file != null) {
+			evaluatorLoaded = true;
+			try {
+				evaluator = NTupleEvaluator.load(Paths.get(file));
+			} catch (IOException e) {
+				System.err.println("N-tuple evaluator not used: " + e.getMessage());
+			}
+		}
+		return evaluator;
+	}
+	
+	/**
+	 * Loads the parameters file named by the connectn.parameters property once per process.
+	 * @return parameters
+	 * 		the tuned parameters, or null if none are configured or they cannot be read
+	 */
+	private static synchronized SearchParameters parameters() {
+		String file = System.getProperty(PARAMETERS_PROPERTY);
+		if (!parametersLoaded && file != null) {
+			parametersLoaded = true;
+			try {
+				parameters = SearchParameters.load(Paths.get(file));
+			} catch (IOException e) {
+				System.err.println("Search parameters not used: " + e.getMessage());
+			}
+		}
+		return parameters;
+	}
+	
+	/**
+	 * Opens the tablebase file named by the connectn.tablebase property once per process.
+	 * @return tablebase
+	 * 		the tablebase, or null if none is configured or it cannot be opened
+	 */
+	private static synchronized Tablebase tablebase() {
+		String file = System.getProperty(TABLEBASE_PROPERTY);
+		if (!tablebaseLoaded && file != null) {
+			tablebaseLoaded = true;
+			try {
+				tablebase = Tablebase.open(Paths.get(file));
+			} catch (IOException e) {
+				System.err.println("Tablebase not used: " + e.getMessage());
+			}
+		}
+		return tablebase;
+	}
+	
+	/**
+	 * Creates the budget capped by the connectn.memory and connectn.gameMemory properties once per
+	 * process. With only the game cap set, the process may use half the heap.
+	 * @return budget
+	 * 		the shared budget, or null if neither cap is configured or a cap is not a size
+	 */
+	private static synchronized MemoryBudget memoryBudget() {
+		String limit = System.getProperty(MEMORY_PROPERTY);
+		String gameLimit = System.getProperty(GAME_MEMORY_PROPERTY);
+		if (!budgetLoaded && (limit != null || gameLimit != null)) {
+			budgetLoaded = true;
+			try {
+				long bytes = (limit != null) ? MemoryBudget.parseBytes(limit) : Runtime.getRuntime().maxMemory() / 2;
+				sharedBudget = new MemoryBudget(bytes, (gameLimit != null) ? MemoryBudget.parseBytes(gameLimit) : bytes);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Memory budget not used: " + e.getMessage());
+			}
+		}
+		return sharedBudget;
+	}
+	
+	/**
+	 * Sets the memory budget the robot's searches are charged to, with the game they are charged
+	 * under.
+	 * @param budget
+	 * 		the budget, or null to search without one
+	 * @param game
+	 * 		name of the game the robot plays in
+	 */
+	public synchronized void setMemoryBudget(MemoryBudget budget, String game) {
+		if (this.budget != null) {
+			this.budget.release(budgetGame(), search);
+			search.setDepthLimit(BotSearch.MAX_DEPTH);
+		}
+		this.budget = budget;
+		this.budgetGame = game;
+	}
+	
+	/**
+	 * Fits the search into the memory budget before a move, resizing its table and limiting its
+	 * depth as the budget requires.
+	 */
+	private void reserve(int depth) {
+		if (budget != null) {
+			budget.prepare(budgetGame(), search, depth);
+		}
+	}
+	
+	/**
+	 * Sets how many positions the proof-number search may try before each move.
+	 * @param proofNodes
+	 * 		the node limit of the proof search, or 0 to always search normally
+	 */
+	public synchronized void setProofSearch(long proofNodes) {
+		this.proofNodes = Math.max(proofNodes, 0);
+		if (this.proofNodes == 0) {
+			proof = null;
+		}
+	}
+	
+	/**
+	 * Tries to prove the robot can force a win, keeping the proof table between moves of a game.
+	 * @param board
+	 * 		the current state of the game board, with the robot to move
+	 * @param deadline
+	 * 		System.nanoTime at which to give up, or 0 for the node limit only
+	 * @return column
+	 * 		a column keeping the forced win, or 0 if none was proven
+	 */
+	private synchronized int provenColumn(Board board, long deadline) {
+		int column = 0;
+		if (proofNodes > 0) {
+			if (proof == null) {
+				proof = new ProofNumberSearch(PROOF_SLOTS);
+			}
+			char symbol = counter.getSymbol();
+			if (proof.solve(board, symbol, symbol, proofNodes, deadline) == ProofNumberSearch.PROVEN) {
+				column = proof.getProvenColumn();
+				provenMoves++;
+			}
+		}
+		return column;
+	}
+	
+	/**
+	 * Number of positions the last proof-number search tried.
+	 */
+	private synchronized long proofNodeCount() {
+		return (proof != null) ? proof.getNodeCount() : 0;
+	}
+	
+	/**
+	 * Sets the column weights and streak bonus used to score positions.
+	 * @param parameters
+	 * 		the parameters, or null for the defaults
+	 */
+	public void setParameters(SearchParameters parameters) {
+		search.setParameters(parameters);
+		checkTable();
+	}
+	
+	/**
+	 * Sets the learned evaluator used to score positions.
+	 * @param evaluator
+	 * 		the n-tuple evaluator, or null to score streaks
+	 */
+	public void setEvaluator(NTupleEvaluator evaluator) {
+		search.setEvaluator(evaluator);
+		checkTable();
+	}
+	
+	/**
+	 * Sets a time limit for each move, searching as deep as it allows instead of to a fixed depth.
+	 * @param millis
+	 * 		time allowed per move in milliseconds, or 0 for no limit
+	 */
+	public void setMoveTime(long millis) {
+		moveMillis = Math.max(millis, 0);
+	}
+	
+	/**
+	 * Sets whether the robot searches with Best-Reply Search instead of paranoid minimax.
+	 * @param bestReply
+	 * 		true for Best-Reply Search
+	 */
+	public void setBestReplySearch(boolean bestReply) {
+		search.setBestReplySearch(bestReply);
+	}
+	
+	/**
+	 * Sets a node budget for each move, searching as deep as it allows instead of to a fixed depth.
+	 * @param nodeBudget
+	 * 		the most positions to search per move, or 0 to search to the fixed depth
+	 */
+	public void setNodeBudget(long nodeBudget) {
+		this.nodeBudget = Math.max(nodeBudget, 0);
+		search.setNodeLimit(this.nodeBudget);
+	}
+	
+	/**
+	 * Shares a search cache with the other robots in the same game, unless the robot already
+	 * uses the table file shared by every game.
+	 * @param cache
+	 * 		the cache of the game
+	 */
+	public void setGameCache(GameCache cache) {
+		if (!(search.getTranspositionTable() instanceof MappedTranspositionTable)) {
+			search.setTranspositionTable(cache);
+		}
+	}
+	
+	/**
+	 * Runs the robot's searches on a shared scheduler with a deadline for each move, instead of on
+	 * the calling thread.
+	 * @param scheduler
+	 * 		the scheduler, or null to search on the calling thread
+	 * @param game
+	 * 		name of the game, used for the scheduler's per-game statistics
+	 * @param deadlineMillis
+	 * 		time allowed for each move in milliseconds
+	 */
+	public void setScheduler(SearchScheduler scheduler, String game, long deadlineMillis) {
+		this.scheduler = scheduler;
+		this.game = game;
+		this.deadlineMillis = deadlineMillis;
 	}
 	
 	/**
@@ -31,16 +417,281 @@ public class Bot extends Player {
 	 */
 	@Override
 	int getNextMove(Board board) {
-		int move;
-		int depth = 6; //Depth of turns to search
+		//A robot pondering on a scheduler searches there too, so its searches never overlap
+		if (ponder != null) {
+			return requestMove(board, 0).join();
+		}
+		
+		//Play a proven win without searching
+		MoveRecord record = new MoveRecord();
+		int move = provenColumn(board, 0);
+		if (move != 0) {
+			record.publish(move, 0, proofNodeCount(), 0);
+			return move;
+		}
+		int depth = DEPTH; //Depth of turns to search
 		
-		//Find best move using min-max search
-		move = search.getBestColumn(board, depth);
+		//Find best move using MTD(f) min-max search
+		reserve((nodeBudget > 0 || moveMillis > 0) ? BotSearch.MAX_DEPTH : depth);
+		if (scheduler != null) {
+			move = scheduler.searchMove(game, search, board, (nodeBudget > 0) ? BotSearch.MAX_DEPTH : depth, deadlineMillis);
+		} else if (moveMillis > 0) {
+			move = search.getBestColumnTimed(board, moveMillis);
+		} else if (nodeBudget > 0) {
+			move = search.getBestColumnMTDF(board, BotSearch.MAX_DEPTH);
+		} else {
+			move = search.getBestColumnMTDF(board, depth);
+		}
 		
 		//Replace with random column should min-max return a full column
 		while (board.getBoard()[0][move-1] != Board.BOARD_SPACE) {
 			move = turn.nextInt(7) + 1;
 		}
+		
+		record.publish(move);
+		return move;
+	}
+	
+	/**
+	 * Requests a move searched on the scheduler, without waiting for it. The search stops the
+	 * robot's background search and runs as deep as the deadline allows.
+	 * @param board
+	 * 		the current state of the game board
+	 * @param deadline
+	 * 		System.nanoTime by which the move is needed, or 0 for the robot's own time limit
+	 * @return move
+	 * 		completes with the column to place the counter in
+	 */
+	@Override
+	synchronized CompletableFuture<Integer> requestMove(Board board, long deadline) {
+		SearchScheduler pool = (scheduler != null) ? scheduler : sharedScheduler();
+		Board position = copyOf(board);
+		CompletableFuture<Integer> background = ponder;
+		if (ponderBoard != null && Arrays.deepEquals(ponderBoard.getBoard(), position.getBoard())) {
+			ponderHits++;
+		}
+		//Submitting the move stops the background search
+		ponder = null;
+		ponderBoard = null;
+		
+		//Play a proven win without searching, stopping the background search as a move would
+		MoveRecord record = new MoveRecord();
+		int proven = provenColumn(position, deadline);
+		if (proven != 0) {
+			if (background != null) {
+				background.cancel(false);
+			}
+			record.publish(proven, 0, proofNodeCount(), 0);
+			return CompletableFuture.completedFuture(proven);
+		}
+		
+		if (deadline == 0) {
+			long millis = (moveMillis > 0) ? moveMillis : deadlineMillis;
+			deadline = System.nanoTime() + ((millis > 0) ? millis * 1000000 : NO_DEADLINE);
+		}
+		int depth = (nodeBudget > 0 || moveMillis > 0) ? BotSearch.MAX_DEPTH : DEPTH;
+		reserve(depth);
+		CompletableFuture<Integer> result = pool.submit(gameName(), search, position, depth, deadline);
+		CompletableFuture<Integer> move = result.thenApply(column -> {
+			//Replace with random column should min-max return a full column
+			while (position.getBoard()[0][column-1] != Board.BOARD_SPACE) {
+				column = turn.nextInt(7) + 1;
+			}
+			record.publish(column);
+			startPondering(pool, position, column, depth);
+			return column;
+		});
+		move.whenComplete((column, error) -> {
+			if (move.isCancelled()) {
+				result.cancel(false);
+			}
+		});
 		return move;
 	}
+	
+	/**
+	 * Queues a background search of the position expected after the robot's move and the other
+	 * players' expected replies.
+	 */
+	private synchronized void startPondering(SearchScheduler pool, Board position, int column, int depth) {
+		Board expected = pondering ? expectedPosition(position, column) : null;
+		if (expected != null) {
+			ponderBoard = expected;
+			ponder = pool.ponder(gameName(), search, expected, depth);
+			ponders++;
+		}
+	}
+	
+	/**
+	 * Plays the robot's move and the replies its search expects from the other players.
+	 * @return expected
+	 * 		the position the robot expects to face next, or null if the search did not expect a
+	 * 		reply from each player in turn or the game ends first
+	 */
+	private Board expectedPosition(Board position, int column) {
+		ColumnAnalysis line = search.getPrincipalLine();
+		int players = Counter.playerSymbols.length;
+		if (line == null || line.getColumn() != column || line.getLine().length < players) {
+			return null;
+		}
+		Board expected = copyOf(position);
+		char mover = counter.getSymbol();
+		for (int i = 0; i < players; i++) {
+			if (line.getMovers()[i] != mover || !expected.placeCounter(mover, line.getLine()[i])
+					|| expected.checkWin(mover) || expected.checkDraw()) {
+				return null;
+			}
+			mover = Counter.playerSymbols[(Counter.indexOf(mover) + 1) % players];
+		}
+		return expected;
+	}
+	
+	/**
+	 * Stops the background search once the game is over, stops charging the memory budget and
+	 * drops the game's statistics from the scheduler it was named on.
+	 */
+	@Override
+	synchronized void endGame() {
+		if (ponder != null) {
+			ponder.cancel(false);
+			ponder = null;
+			ponderBoard = null;
+		}
+		if (scheduler != null && game != null) {
+			scheduler.endGame(game);
+		}
+		if (budget != null) {
+			budget.release(budgetGame(), search);
+		}
+		proof = null;
+	}
+	
+	/**
+	 * Sets whether the robot searches the position it expects to face between asynchronous moves.
+	 * @param pondering
+	 * 		true to search between moves
+	 */
+	public synchronized void setPondering(boolean pondering) {
+		this.pondering = pondering;
+		if (!pondering) {
+			endGame();
+		}
+	}
+	
+	/**
+	 * Accessor for the number of moves played from a proven win.
+	 * @return provenMoves
+	 */
+	public synchronized long getProvenMoves() {
+		return provenMoves;
+	}
+	
+	/**
+	 * Accessor for the number of background searches started.
+	 * @return ponders
+	 */
+	public synchronized long getPonders() {
+		return ponders;
+	}
+	
+	/**
+	 * Accessor for the number of moves requested in the position searched in the background.
+	 * @return ponderHits
+	 */
+	public synchronized long getPonderHits() {
+		return ponderHits;
+	}
+	
+	/**
+	 * Name of the game for the scheduler's statistics.
+	 */
+	private String gameName() {
+		return (game != null) ? game : "game";
+	}
+	
+	/**
+	 * Name of the game for the memory budget.
+	 */
+	private String budgetGame() {
+		return (budgetGame != null) ? budgetGame : gameName();
+	}
+	
+	/**
+	 * Starts the scheduler used by robots without their own once per process.
+	 * @return scheduler
+	 */
+	private static synchronized SearchScheduler sharedScheduler() {
+		if (sharedScheduler == null) {
+			sharedScheduler = new SearchScheduler(Runtime.getRuntime().availableProcessors());
+		}
+		return sharedScheduler;
+	}
+	
+	/**
+	 * Copies a board so the search is not changed by later moves.
+	 */
+	private static Board copyOf(Board board) {
+		char[][] cells = new char[Board.BOARD_HEIGHT][];
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			cells[row] = board.getBoard()[row].clone();
+		}
+		Board copy = new Board(board.getGameWinAmount());
+		copy.setBoard(cells);
+		return copy;
+	}
+	
+	/**
+	 * Statistics of one move's search from the moment the move is requested, published once the
+	 * column is chosen whether the search ran on the calling thread or on a scheduler.
+	 */
+	private class MoveRecord {
+		private final SearchMoveEvent event = new SearchMoveEvent();
+		private final TranspositionTable table = search.getTranspositionTable();
+		private final long probes = table.getProbes();
+		private final long hits = table.getHits();
+		private final long start = System.nanoTime();
+		
+		MoveRecord() {
+			event.begin();
+		}
+		
+		/**
+		 * Records the move with the search telemetry and commits its flight recorder event.
+		 * @param column
+		 * 		the column played
+		 */
+		void publish(int column) {
+			publish(column, search.getDepthReached(), search.getNodeCount(), search.getAllocatedBytes());
+		}
+		
+		/**
+		 * Records a move chosen by another search than the robot's minimax search, such as a
+		 * proven win.
+		 * @param column
+		 * 		the column played
+		 * @param depth
+		 * 		the depth searched, or 0 for none
+		 * @param nodes
+		 * 		the positions searched to choose the column
+		 * @param allocated
+		 * 		the bytes the search allocated, or 0 if not measured
+		 */
+		void publish(int column, int depth, long nodes, long allocated) {
+			event.end();
+			SearchTelemetry.getInstance().recordMove(System.nanoTime() - start, nodes);
+			if (event.shouldCommit()) {
+				//A table swapped in as the search started counted only this search
+				TranspositionTable used = search.getTranspositionTable();
+				long tableProbes = used.getProbes() - ((used == table) ? probes : 0);
+				long tableHits = used.getHits() - ((used == table) ? hits : 0);
+				event.player = counter.getSymbol();
+				event.depth = depth;
+				event.nodes = nodes;
+				event.column = column;
+				event.cacheHitRate = (tableProbes > 0) ? (double) tableHits / tableProbes : 0;
+				event.allocated = allocated;
+				event.commit();
+			}
+		}
+	}
 }
\ No newline at end of file
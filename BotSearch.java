@@ -1,3 +1,10 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Logic to perform min-max algorithm and find best next turn for robot player.
  * 
@@ -8,10 +15,55 @@
  *
  */
 public class BotSearch {
-	private MinimaxBoard[] children;
+	public static final int WIN_SCORE = 1000000;
+	public static final int LOSS_SCORE = -WIN_SCORE;
+	//Bounds wider than any score (including column weighting), far from int overflow
+	static final int INFINITY = 2 * WIN_SCORE;
+	private static final int ASPIRATION_WINDOW = 4;
+	static final int TABLE_SLOTS = 1 << 20;
+	//Deepest iteration of a timed search - every square filled
+	static final int MAX_DEPTH = Board.BOARD_HEIGHT * Board.BOARD_WIDTH;
+	//Remaining depth below which late moves are never reduced
+	private static final int MIN_REDUCTION_DEPTH = 3;
+	//Nodes between checks of the stop conditions
+	private static final int STOP_CHECK_INTERVAL = 256;
+	//Leaf score marking a column that is full or must be searched normally
+	private static final int UNSCORED = Integer.MIN_VALUE;
+	//Columns ordered from the centre outwards
+	private static final int[] COLUMN_ORDER = {4, 3, 5, 2, 6, 1, 7};
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
 	private MinimaxBoard board;
 	private int bestColumn;
+	private int bestScore;
 	private char callingPlayer;
+	private TranspositionTable table;
+	//Table to change to when the next search starts, set from other threads such as by a memory budget
+	private final AtomicReference<TranspositionTable> nextTable = new AtomicReference<TranspositionTable>();
+	private Tablebase tablebase;
+	private long nodes;
+	private int depthReached;
+	//Bytes allocated by every thread that ran a slice of the current iterative deepening search
+	private long allocated;
+	private int fullDepthMoves;
+	private int reductionPlies;
+	private int extensionPlies;
+	private int maxExtensions;
+	private long deadline;
+	private long nodeLimit;
+	private int targetDepth;
+	private int depthLimit = MAX_DEPTH;
+	private int completedColumn;
+	private volatile boolean stopRequested;
+	private boolean aborted;
+	private boolean batchLeaves = true;
+	private boolean windowCutoffs = true;
+	private boolean bestReply;
+	private NTupleEvaluator evaluator;
+	private SearchParameters parameters = SearchParameters.DEFAULTS;
+	//Cut-off counts of each player's columns, weighted by depth, shared by every node searched
+	private final int[][] history = new int[Counter.playerSymbols.length][Board.BOARD_WIDTH + 1];
+	private final BatchEvaluator batch = new BatchEvaluator();
 	
 	/**
 	 * Constructor sets calling player.
@@ -19,7 +71,19 @@ public class BotSearch {
 	 * 		the counter of the player who created the object.
 	 */
 	public BotSearch(char callingPlayer) {
+		this(callingPlayer, new TranspositionTable(TABLE_SLOTS));
+	}
+
+	/**
+	 * Constructor sets calling player and the transposition table to search with.
+	 * @param callingPlayer
+	 * 		the counter of the player who created the object.
+	 * @param table
+	 * 		the table to remember searched positions in, which may be shared
+	 */
+	public BotSearch(char callingPlayer, TranspositionTable table) {
 		this.callingPlayer = callingPlayer;
+		this.table = table;
 	}
 	
 	/**
@@ -32,11 +96,13 @@ public class BotSearch {
 	 * 		the column leading to the highest scoring board
 	 */
 	int getBestColumn(Board startingBoard, int depth) {
+		useNextTable();
 		board = new MinimaxBoard(startingBoard);
+		nodes = 0;
 		
 		try {
 			// Perform min-max search always starting with calling player
-			minimax(board, depth, callingPlayer);
+			bestScore = minimax(board, depth, callingPlayer, true);
 			
 		} catch (CloneNotSupportedException e) {
 			//End programme gracefully if exception is thrown - error in code
@@ -46,6 +112,677 @@ public class BotSearch {
 		return bestColumn;
 	}
 
+	/**
+	 * Returns best column after a single alpha-beta search with a full window.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Depth of turns to search
+	 * @return bestColumn
+	 * 		the column leading to the highest scoring board
+	 */
+	int getBestColumnAlphaBeta(Board startingBoard, int depth) {
+		useNextTable();
+		board = new MinimaxBoard(startingBoard);
+		nodes = 0;
+		aborted = false;
+		ageHistory();
+		bestColumn = firstLegalColumn(board);
+
+		try {
+			bestScore = alphaBeta(board, depth, callingPlayer, -INFINITY, INFINITY, true, 0);
+
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+		return bestColumn;
+	}
+
+	/**
+	 * Returns best column using iterative deepening MTD(f).
+	 * Each depth is solved by a series of zero-window searches starting from the score of the
+	 * previous depth, with the transposition table keeping the bounds found by earlier passes.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Depth of turns to search
+	 * @return bestColumn
+	 * 		the column leading to the highest scoring board
+	 */
+	int getBestColumnMTDF(Board startingBoard, int depth) {
+		return iterateMTDF(startingBoard, depth);
+	}
+
+	/**
+	 * Returns best column using iterative deepening MTD(f), going as deep as the time allows.
+	 * The result of an iteration cut short by the time limit is discarded.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param millis
+	 * 		Time allowed for the search in milliseconds
+	 * @return bestColumn
+	 * 		the column leading to the highest scoring board at the deepest completed depth
+	 */
+	int getBestColumnTimed(Board startingBoard, long millis) {
+		deadline = System.nanoTime() + millis * 1000000;
+		int column = iterateMTDF(startingBoard, MAX_DEPTH);
+		deadline = 0;
+		return column;
+	}
+
+	/**
+	 * Runs MTD(f) at increasing depths until the maximum depth or a stop condition is reached.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Deepest iteration to search
+	 * @return bestColumn
+	 * 		the best column of the deepest completed iteration
+	 */
+	private int iterateMTDF(Board startingBoard, int depth) {
+		startSearch(startingBoard, depth);
+		runIterations();
+		stopRequested = false;
+		return bestColumn;
+	}
+
+	/**
+	 * Prepares an iterative deepening MTD(f) search to be run in slices by continueSearch.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Deepest iteration to search
+	 */
+	void startSearch(Board startingBoard, int depth) {
+		useNextTable();
+		board = new MinimaxBoard(startingBoard);
+		nodes = 0;
+		depthReached = 0;
+		allocated = 0;
+		aborted = false;
+		ageHistory();
+		targetDepth = Math.min(depth, depthLimit);
+		bestColumn = firstLegalColumn(board);
+		completedColumn = bestColumn;
+		bestScore = 0;
+	}
+
+	/**
+	 * Runs a started search for up to a number of nodes or until a deadline, then suspends it.
+	 * An iteration cut short is searched again on the next call, starting with the bounds the
+	 * transposition table kept from the work already done.
+	 * @param nodeBudget
+	 * 		the most nodes to search in this slice
+	 * @param sliceDeadline
+	 * 		System.nanoTime at which to suspend, or 0 for none
+	 * @return finished
+	 * 		true once the deepest iteration has completed, the search's node limit is reached or a
+	 * 		stop was requested
+	 */
+	boolean continueSearch(long nodeBudget, long sliceDeadline) {
+		long limit = nodeLimit;
+		long searchDeadline = deadline;
+		//A slice never runs past the node limit of the whole search
+		nodeLimit = (limit != 0) ? Math.min(nodes + nodeBudget, limit) : nodes + nodeBudget;
+		deadline = sliceDeadline;
+		aborted = false;
+		runIterations();
+		nodeLimit = limit;
+		deadline = searchDeadline;
+
+		boolean finished = depthReached >= targetDepth || stopRequested || (limit != 0 && nodes >= limit);
+		if (finished) {
+			stopRequested = false;
+		}
+		return finished;
+	}
+
+	/**
+	 * Runs MTD(f) iterations from the deepest completed depth until the target depth or a stop
+	 * condition is reached, keeping only the results of iterations that ran to completion.
+	 */
+	private void runIterations() {
+		long start = allocatedBytes();
+		try {
+			for (int iteration = depthReached + 1; iteration <= targetDepth && !aborted; iteration++) {
+				int score = mtdf(board, bestScore, iteration);
+
+				//Only keep results of iterations that ran to completion
+				if (!aborted) {
+					bestScore = score;
+					completedColumn = bestColumn;
+					depthReached = iteration;
+				}
+			}
+
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+		bestColumn = completedColumn;
+		allocated += allocatedBytes() - start;
+	}
+
+	/**
+	 * Returns best column using iterative deepening with aspiration windows.
+	 * Each depth is searched with a narrow window around the previous score, widening on failure.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Depth of turns to search
+	 * @return bestColumn
+	 * 		the column leading to the highest scoring board
+	 */
+	int getBestColumnAspiration(Board startingBoard, int depth) {
+		useNextTable();
+		board = new MinimaxBoard(startingBoard);
+		nodes = 0;
+		aborted = false;
+		ageHistory();
+		bestColumn = firstLegalColumn(board);
+		int score = 0;
+
+		try {
+			for (int iteration = 1; iteration <= depth; iteration++) {
+				score = aspiration(board, score, iteration);
+			}
+			bestScore = score;
+
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+		return bestColumn;
+	}
+
+	/**
+	 * Scores every legal column in one search run, ranked from best to worst.
+	 * At each depth the columns are searched best first by their scores at the previous depth.
+	 * The first is solved exactly with MTD(f), and each other column is only tested with a
+	 * zero-window search against the best score so far. A column that fails high is solved
+	 * exactly and becomes the best, while one that fails low keeps the upper bound the test
+	 * found. A time or node limit keeps the deepest depth completed for every column.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Depth of turns to search
+	 * @return analyses
+	 * 		the score and expected line of each legal column, best first
+	 */
+	public List<ColumnAnalysis> analyseColumns(Board startingBoard, int depth) {
+		return analyse(startingBoard, depth, 0);
+	}
+
+	/**
+	 * Scores a single column the same way as analyseColumns.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Depth of turns to search
+	 * @param column
+	 * 		the column to score
+	 * @return analysis
+	 * 		the score and expected line of the column, or null if the column is full
+	 */
+	ColumnAnalysis analyseColumn(Board startingBoard, int depth, int column) {
+		List<ColumnAnalysis> analyses = analyse(startingBoard, depth, column);
+		return analyses.isEmpty() ? null : analyses.get(0);
+	}
+
+	/**
+	 * Scores a position inside the search tree, with any player to move, by iterative deepening
+	 * MTD(f). Used to search the subtrees of a root split by SearchCoordinator.
+	 * @param position
+	 * 		the board to score
+	 * @param player
+	 * 		the counter of the player to move
+	 * @param depth
+	 * 		depth of turns to search
+	 * @return score
+	 * 		the min-max score of the position for the calling player at the deepest completed depth
+	 */
+	int scorePosition(Board position, char player, int depth) {
+		useNextTable();
+		MinimaxBoard node = new MinimaxBoard(position);
+		nodes = 0;
+		depthReached = 0;
+		aborted = false;
+		ageHistory();
+		int score = 0;
+
+		try {
+			if (windowCutoffs) {
+				node.getWindows();
+			}
+			for (int iteration = 0; iteration <= depth && !aborted; iteration++) {
+				int guess = mtdf(node, player, score, iteration, false);
+				//Only keep results of iterations that ran to completion
+				if (!aborted) {
+					score = guess;
+					depthReached = iteration;
+				}
+			}
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+		stopRequested = false;
+		return score;
+	}
+
+	/**
+	 * Runs a multi-PV search of every column, or of one column only.
+	 * @param startingBoard
+	 * 		Current state of the game board
+	 * @param depth
+	 * 		Depth of turns to search
+	 * @param onlyColumn
+	 * 		the column to analyse, or 0 for all columns
+	 * @return analyses
+	 * 		the analysis of each legal column, best first
+	 */
+	private List<ColumnAnalysis> analyse(Board startingBoard, int depth, int onlyColumn) {
+		useNextTable();
+		board = new MinimaxBoard(startingBoard);
+		nodes = 0;
+		depthReached = 0;
+		aborted = false;
+		ageHistory();
+		List<ColumnAnalysis> analyses = new ArrayList<ColumnAnalysis>();
+
+		try {
+			if (windowCutoffs) {
+				board.getWindows();
+			}
+			MinimaxBoard[] children = new MinimaxBoard[Board.BOARD_WIDTH + 1];
+			int[] guesses = new int[Board.BOARD_WIDTH + 1];
+			int[] scores = new int[Board.BOARD_WIDTH + 1];
+			boolean[] solved = new boolean[Board.BOARD_WIDTH + 1];
+			boolean[] exact = new boolean[Board.BOARD_WIDTH + 1];
+			Integer[] order = new Integer[COLUMN_ORDER.length];
+			for (int i = 0; i < COLUMN_ORDER.length; i++) {
+				int column = COLUMN_ORDER[i];
+				order[i] = column;
+				if (onlyColumn == 0 || column == onlyColumn) {
+					children[column] = createChild(board, callingPlayer, column);
+				}
+			}
+
+			char nextPlayer = nextToSearch(callingPlayer);
+			for (int iteration = 1; iteration <= depth && !aborted; iteration++) {
+				int best = -INFINITY;
+				for (int column : order) {
+					if (children[column] == null || aborted) {
+						continue;
+					}
+					int weight = weightColumn(column);
+					int bound = best - weight;
+					solved[column] = (best == -INFINITY);
+					if (!solved[column]) {
+						//Only a column beating the best so far needs its exact score
+						guesses[column] = alphaBeta(children[column], iteration - 1, nextPlayer, bound, bound + 1, false, 0);
+						solved[column] = guesses[column] > bound;
+					}
+					if (solved[column]) {
+						guesses[column] = mtdf(children[column], nextPlayer, guesses[column], iteration - 1, false);
+						best = Math.max(best, guesses[column] + weight);
+					}
+				}
+				//Only keep results of iterations that ran to completion
+				if (!aborted) {
+					System.arraycopy(guesses, 0, scores, 0, scores.length);
+					System.arraycopy(solved, 0, exact, 0, exact.length);
+					depthReached = iteration;
+					//Stable sort searches the best columns first at the next depth, centre first among equals
+					Arrays.sort(order, (first, second) -> Long.compare(rankOf(scores, exact, second), rankOf(scores, exact, first)));
+				}
+			}
+
+			for (int column : order) {
+				if (children[column] != null) {
+					analyses.add(principalLine(column, children[column], scores[column] + weightColumn(column), exact[column]));
+				}
+			}
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+
+		//Stable sort keeps exact scores, then centre columns, first among equal scores
+		analyses.sort((first, second) -> (first.getScore() != second.getScore())
+				? Integer.compare(second.getScore(), first.getScore()) : Boolean.compare(second.isExact(), first.isExact()));
+		if (!analyses.isEmpty()) {
+			bestColumn = analyses.get(0).getColumn();
+			bestScore = analyses.get(0).getScore();
+		}
+		stopRequested = false;
+		return analyses;
+	}
+
+	/**
+	 * Ranks a column by its weighted score, with an exact score above an equal upper bound.
+	 */
+	private long rankOf(int[] scores, boolean[] exact, int column) {
+		return 2L * (scores[column] + weightColumn(column)) + (exact[column] ? 1 : 0);
+	}
+
+	/**
+	 * Follows the best moves stored in the transposition table from a root column to find the
+	 * line of play expected after it.
+	 * @param column
+	 * 		the root column
+	 * @param child
+	 * 		the board after the root column is played
+	 * @param score
+	 * 		the score of the column
+	 * @param exact
+	 * 		true if the score is exact, false if it is an upper bound
+	 * @return analysis
+	 * 		the column with its score and line
+	 * @throws CloneNotSupportedException
+	 * 		Exception thrown if clone attempted on class that is not supported
+	 */
+	private ColumnAnalysis principalLine(int column, MinimaxBoard child, int score, boolean exact) throws CloneNotSupportedException {
+		int length = Math.max(depthReached, 1);
+		int[] line = new int[length];
+		char[] lineMovers = new char[length];
+		line[0] = column;
+		lineMovers[0] = callingPlayer;
+		int moves = 1;
+
+		MinimaxBoard node = child;
+		char player = nextToSearch(callingPlayer);
+		while (moves < length && !node.endGame()) {
+			long entry = table.probe(tableKey(Zobrist.position(node), player));
+			char[] movers = moversOf(player);
+			int move = TranspositionTable.columnOf(entry);
+			if (entry == TranspositionTable.EMPTY || move == 0 || move > Board.BOARD_WIDTH * movers.length) {
+				break;
+			}
+			int nextColumn = (move - 1) % Board.BOARD_WIDTH + 1;
+			char mover = movers[(move - 1) / Board.BOARD_WIDTH];
+			node = createChild(node, mover, nextColumn);
+			if (node == null) {
+				break;
+			}
+			line[moves] = nextColumn;
+			lineMovers[moves] = mover;
+			moves++;
+			player = nextToSearch(player);
+		}
+		return new ColumnAnalysis(column, score, exact, depthReached, Arrays.copyOf(line, moves), Arrays.copyOf(lineMovers, moves));
+	}
+
+	/**
+	 * Accessor for the best column of the last search, or of the deepest completed iteration of
+	 * a search running in slices.
+	 * @return bestColumn
+	 */
+	public int getBestColumn() {
+		return bestColumn;
+	}
+
+	/**
+	 * Finds the line of play expected after the best column of the last search.
+	 * @return analysis
+	 * 		the best column with its score and line, or null if no search has run
+	 */
+	public ColumnAnalysis getPrincipalLine() {
+		ColumnAnalysis analysis = null;
+		try {
+			MinimaxBoard child = (board != null) ? createChild(board, callingPlayer, bestColumn) : null;
+			if (child != null) {
+				analysis = principalLine(bestColumn, child, bestScore, true);
+			}
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+		return analysis;
+	}
+
+	/**
+	 * Accessor for the number of positions visited by the last search.
+	 * @return nodes
+	 */
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Accessor for the deepest iteration completed by the last iterative deepening search.
+	 * @return depthReached
+	 */
+	public int getDepthReached() {
+		return depthReached;
+	}
+
+	/**
+	 * Accessor for the bytes allocated by the last iterative deepening search, summed over every
+	 * thread that ran a slice of it.
+	 * @return allocated
+	 * 		allocated bytes, or 0 if the JVM does not count them
+	 */
+	public long getAllocatedBytes() {
+		return allocated;
+	}
+
+	/**
+	 * Sets late move reductions. Once the given number of columns have been searched at a node,
+	 * the remaining columns are searched with reduced depth, and searched again at full depth if
+	 * the reduced score would improve the bound.
+	 * @param fullDepthMoves
+	 * 		the number of columns searched at full depth at each node
+	 * @param reductionPlies
+	 * 		the depth taken off later columns, or 0 to turn reductions off
+	 */
+	public void setLateMoveReductions(int fullDepthMoves, int reductionPlies) {
+		this.fullDepthMoves = Math.max(fullDepthMoves, 1);
+		this.reductionPlies = Math.max(reductionPlies, 0);
+	}
+
+	/**
+	 * Sets threat extensions. Leaf positions where any player can complete a line with their next
+	 * counter are searched further, so a win or loss just past the horizon is not missed.
+	 * @param extensionPlies
+	 * 		the depth added to a threatened leaf
+	 * @param maxExtensions
+	 * 		the most extensions allowed along one line of play, or 0 to turn extensions off
+	 */
+	public void setThreatExtensions(int extensionPlies, int maxExtensions) {
+		this.extensionPlies = Math.max(extensionPlies, 1);
+		this.maxExtensions = Math.max(maxExtensions, 0);
+	}
+
+	/**
+	 * Sets whether the leaf children of a node are scored together in one batch.
+	 * Batched and single leaf scores are identical, only the speed differs.
+	 * @param batchLeaves
+	 * 		true to score sibling leaves in one batch
+	 */
+	public void setBatchLeaves(boolean batchLeaves) {
+		this.batchLeaves = batchLeaves;
+	}
+
+	/**
+	 * Sets whether positions where players can no longer complete a line are scored without
+	 * searching them. Positions nobody can win are scored as a draw, and where only the calling
+	 * player or only its opponents can still win, the draw score bounds the result.
+	 * @param windowCutoffs
+	 * 		true to cut the search at such positions
+	 */
+	public void setWindowCutoffs(boolean windowCutoffs) {
+		this.windowCutoffs = windowCutoffs;
+	}
+
+	/**
+	 * Sets whether the search uses Best-Reply Search instead of paranoid minimax.
+	 * Best-Reply Search replaces each round of opponent turns with a single layer holding every
+	 * move of every opponent, keeping only the strongest reply, so the calling player's turns
+	 * alternate with one min layer and the same depth looks further ahead.
+	 * @param bestReply
+	 * 		true for Best-Reply Search, false for paranoid minimax
+	 */
+	public void setBestReplySearch(boolean bestReply) {
+		this.bestReply = bestReply;
+	}
+
+	/**
+	 * Accessor to find if the search uses Best-Reply Search.
+	 * @return bestReply
+	 */
+	public boolean isBestReplySearch() {
+		return bestReply;
+	}
+
+	/**
+	 * Sets the most nodes an iterative deepening search may visit before stopping.
+	 * @param nodeLimit
+	 * 		the node budget, or 0 for no limit
+	 */
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = Math.max(nodeLimit, 0);
+	}
+
+	/**
+	 * Asks a running search to stop as soon as possible, keeping its deepest completed result.
+	 * May be called from any thread.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Accessor for the score of the best column found by the last search.
+	 * @return bestScore
+	 */
+	public int getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Accessor for the transposition table shared by the searches of this object.
+	 * @return table
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * Limits the depth of later iterative deepening searches, such as to fit a memory budget.
+	 * @param depthLimit
+	 * 		the deepest iteration to search, or MAX_DEPTH for no limit
+	 */
+	void setDepthLimit(int depthLimit) {
+		this.depthLimit = Math.max(depthLimit, 1);
+	}
+
+	/**
+	 * Accessor for the deepest iteration later searches may run.
+	 * @return depthLimit
+	 */
+	int getDepthLimit() {
+		return depthLimit;
+	}
+
+	/**
+	 * Sets the transposition table used by later searches, such as a cache shared by one game.
+	 * @param table
+	 * 		the table to use
+	 */
+	public void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+		nextTable.set(null);
+	}
+
+	/**
+	 * Changes the transposition table when the next search starts, so a search already running,
+	 * perhaps on another thread, finishes with the table it started with.
+	 * @param table
+	 * 		the table to use from the next search on
+	 */
+	void replaceTranspositionTable(TranspositionTable table) {
+		nextTable.set(table);
+	}
+
+	/**
+	 * Accessor for the table the next search changes to.
+	 * @return table
+	 * 		the replacement table, or null once it is in use or if none was given
+	 */
+	TranspositionTable getNextTranspositionTable() {
+		return nextTable.get();
+	}
+
+	/**
+	 * Changes to the replacement table, if any, as a search starts. The replacement is only
+	 * cleared after the table is changed, so anyone seeing it cleared sees the table in use.
+	 */
+	private void useNextTable() {
+		TranspositionTable next = nextTable.get();
+		if (next != null) {
+			table = next;
+			nextTable.compareAndSet(next, null);
+		}
+	}
+
+	/**
+	 * Sets a learned evaluator to score leaf positions instead of the streak heuristic.
+	 * @param evaluator
+	 * 		the n-tuple evaluator, or null to score streaks; games of another win amount score streaks
+	 */
+	public void setEvaluator(NTupleEvaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	/**
+	 * Sets the column weights and streak bonus used to score positions.
+	 * @param parameters
+	 * 		the parameters, or null for the defaults
+	 */
+	public void setParameters(SearchParameters parameters) {
+		this.parameters = (parameters != null) ? parameters : SearchParameters.DEFAULTS;
+	}
+
+	/**
+	 * Accessor for the column weights and streak bonus used to score positions.
+	 * @return parameters
+	 */
+	public SearchParameters getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Fingerprint of the settings that change the scores the search stores, so a table kept
+	 * between processes is only searched with the settings that filled it.
+	 * @return fingerprint
+	 */
+	public long getFingerprint() {
+		long fingerprint = 31 * fullDepthMoves + reductionPlies;
+		fingerprint = 31 * fingerprint + extensionPlies;
+		fingerprint = 31 * fingerprint + maxExtensions;
+		fingerprint = 31 * fingerprint + (windowCutoffs ? 1 : 0);
+		fingerprint = 31 * fingerprint + parameters.hashCode();
+		fingerprint = 31 * fingerprint + ((evaluator != null) ? evaluator.getFingerprint() : 0);
+		return fingerprint;
+	}
+
+	/**
+	 * Sets a tablebase to answer positions of its variant exactly during alpha-beta searches.
+	 * @param tablebase
+	 * 		the tablebase to consult, or null to search every position
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
 	/**
 	 * Performs min-max algorithm to find best possible move.
 	 * 
@@ -55,6 +792,8 @@ public class BotSearch {
 	 * 		Remaining depth of turns to search
 	 * @param player
 	 * 		player who's turn it is on the current method call
+	 * @param root
+	 * 		true if the board is the root of the search, where the best column is recorded
 	 * 
 	 * @return bestValue
 	 * 		the value with the least possible losses
@@ -63,26 +802,26 @@ public class BotSearch {
 	 * 		Exception thrown if clone attempted on class that is not supported
 	 * 
 	 */
-	private int minimax(MinimaxBoard board, int depth, char player) throws CloneNotSupportedException {
-		this.board = board;
+	private int minimax(MinimaxBoard board, int depth, char player, boolean root) throws CloneNotSupportedException {
 		char nextPlayer = nextPlayer(player);
 		int bestValue; //Highest score for this turn
 		int column = 0; //Column tracker
 		int bestTurn = -1; //Highest scoring column for this turn
+		nodes++;
 		
 		// Check if leaf node has been reached
 		if (depth == 0 || board.endGame() || !board.isUsable()) {
-			bestValue = evaluateBoard();
+			bestValue = evaluateBoard(board);
 			
 		} else if (player == callingPlayer) {
 			// Check if player is the original caller - maximising player
-			bestValue = Integer.MIN_VALUE;
-			createChildren(player);
+			bestValue = -INFINITY;
+			MinimaxBoard[] children = createChildren(board, player);
 
 			// Recursively call function for each child (board state)
 			for (MinimaxBoard newBoard : children) {
 				column++;
-				int child = minimax(newBoard, depth-1, nextPlayer);
+				int child = minimax(newBoard, depth-1, nextPlayer, false);
 				child += weightColumn(column);
 				bestValue = Math.max(bestValue, child);
 				
@@ -92,14 +831,13 @@ public class BotSearch {
 			
 		} else {
 			// Check if player is not the original caller - minimising player
-			// Minus max weighting to prevent overflow
-			bestValue = Integer.MAX_VALUE - weightColumn((board.getBoard()[0].length+1)/2);
-			createChildren(player);
+			bestValue = INFINITY;
+			MinimaxBoard[] children = createChildren(board, player);
 			
 			// Recursively call function for each child (board state)
 			for (MinimaxBoard newBoard : children) {
 				column++;
-				int child = minimax(newBoard, depth-1, nextPlayer);
+				int child = minimax(newBoard, depth-1, nextPlayer, false);
 				child += weightColumn(column);
 				bestValue = Math.min(bestValue, child);
 				
@@ -107,85 +845,609 @@ public class BotSearch {
 				if (bestValue == child) bestTurn = column;
 			}
 		}
-		bestColumn = bestTurn;
+		if (root) {
+			bestColumn = bestTurn;
+		}
 		return bestValue;
 	}
 	
+	/**
+	 * Runs zero-window searches until the upper and lower bounds on the score meet.
+	 * @param root
+	 * 		the board to search
+	 * @param firstGuess
+	 * 		the expected score, normally the score of the previous iteration
+	 * @param depth
+	 * 		depth of turns to search
+	 * @return score
+	 * 		the min-max score of the board
+	 * @throws CloneNotSupportedException
+	 * 		Exception thrown if clone attempted on class that is not supported
+	 */
+	private int mtdf(MinimaxBoard root, int firstGuess, int depth) throws CloneNotSupportedException {
+		return mtdf(root, callingPlayer, firstGuess, depth, true);
+	}
+
+	/**
+	 * Runs zero-window searches of any node until the upper and lower bounds on its score meet.
+	 * @param node
+	 * 		the board to search
+	 * @param player
+	 * 		the counter of the player to move
+	 * @param firstGuess
+	 * 		the expected score
+	 * @param depth
+	 * 		depth of turns to search
+	 * @param root
+	 * 		true if the board is the root of the search, where the best column is recorded
+	 * @return score
+	 * 		the min-max score of the board
+	 * @throws CloneNotSupportedException
+	 * 		Exception thrown if clone attempted on class that is not supported
+	 */
+	private int mtdf(MinimaxBoard node, char player, int firstGuess, int depth, boolean root)
+			throws CloneNotSupportedException {
+		int score = firstGuess;
+		int lower = -INFINITY;
+		int upper = INFINITY;
+		
+		while (lower < upper && !aborted) {
+			int beta = (score == lower) ? score + 1 : score;
+			score = alphaBeta(node, depth, player, beta - 1, beta, root, 0);
+			
+			if (score < beta) {
+				upper = score;
+			} else {
+				lower = score;
+			}
+		}
+		return score;
+	}
+			
+	/**
+	 * Searches with a narrow window around the expected score, widening the failing side until
+	 * the score falls inside the window.
+	 * @param root
+	 * 		the board to search
+	 * @param expected
+	 * 		the expected score, normally the score of the previous iteration
+	 * @param depth
+	 * 		depth of turns to search
+	 * @return score
+	 * 		the min-max score of the board
+	 * @throws CloneNotSupportedException
+	 * 		Exception thrown if clone attempted on class that is not supported
+	 */
+	private int aspiration(MinimaxBoard root, int expected, int depth) throws CloneNotSupportedException {
+		int delta = ASPIRATION_WINDOW;
+		int alpha = Math.max(expected - delta, -INFINITY);
+		int beta = Math.min(expected + delta, INFINITY);
+		int score;
+			
+		while (true) {
+			score = alphaBeta(root, depth, callingPlayer, alpha, beta, true, 0);
+
+			if (aborted) {
+				break;
+			} else if (score <= alpha && alpha > -INFINITY) {
+				//Fail low - widen window downwards
+				delta *= 4;
+				alpha = Math.max(score - delta, -INFINITY);
+			} else if (score >= beta && beta < INFINITY) {
+				//Fail high - widen window upwards
+				delta *= 4;
+				beta = Math.min(score + delta, INFINITY);
+			} else {
+				break;
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Fail-soft alpha-beta search with transposition table memory.
+	 * The returned score may lie outside the window, in which case it is a bound on the true score.
+	 *
+	 * @param board
+	 * 		Current state of the game board for searching
+	 * @param depth
+	 * 		Remaining depth of turns to search
+	 * @param player
+	 * 		player who's turn it is on the current method call
+	 * @param alpha
+	 * 		score the maximising player is already assured of
+	 * @param beta
+	 * 		score the minimising players are already assured of
+	 * @param root
+	 * 		true if the board is the root of the search, where the best column is recorded
+	 * @param extended
+	 * 		the number of threat extensions already made along this line of play
+	 * @return bestValue
+	 * 		the score of the board, or a bound on it if outside the window
+	 * @throws CloneNotSupportedException
+	 * 		Exception thrown if clone attempted on class that is not supported
+	 */
+	private int alphaBeta(MinimaxBoard board, int depth, char player, int alpha, int beta, boolean root, int extended)
+			throws CloneNotSupportedException {
+		nodes++;
+		if (checkStop()) {
+			return 0;
+		}
+
+		//Positions of a solved variant are scored exactly without searching
+		//Best-Reply lines skip opponent turns, so the tablebase's player to move does not apply
+		if (!root && !bestReply && tablebase != null && tablebase.covers(board)) {
+			int outcome = tablebase.probe(board, player, callingPlayer);
+			if (outcome != Tablebase.UNKNOWN) {
+				return (outcome == Tablebase.WIN) ? WIN_SCORE : (outcome == Tablebase.LOSS) ? LOSS_SCORE : 0;
+			}
+		}
+
+		//A draw is the best result for whoever can no longer win, and the worst for everyone else
+		if (windowCutoffs) {
+			LineWindows windows = board.getWindows();
+			if (!root && !windows.hasOpenWindow()) {
+				boolean callerCanWin = windows.canWin(callingPlayer);
+				boolean otherCanWin = windows.otherCanWin(callingPlayer);
+				if ((!callerCanWin && !otherCanWin) || (!callerCanWin && alpha >= 0) || (!otherCanWin && beta <= 0)) {
+					return 0;
+				}
+			}
+		}
+
+		//Search past the horizon while a player can complete a line with their next counter
+		long position = Zobrist.position(board);
+		long facts = PositionFacts.UNKNOWN;
+		if (depth == 0 && extended < maxExtensions) {
+			facts = factsOf(board, position, facts, true);
+			if (PositionFacts.hasThreat(facts)) {
+				depth += extensionPlies;
+				extended++;
+			}
+		}
+
+		long key = tableKey(position, player);
+		long entry = table.probe(key);
+		int tableMove = 0;
+
+		//Use stored bounds to return early or narrow the window
+		if (entry != TranspositionTable.EMPTY) {
+			tableMove = TranspositionTable.columnOf(entry);
+			if (!root && TranspositionTable.depthOf(entry) >= depth) {
+				int lower = TranspositionTable.lowerOf(entry);
+				int upper = TranspositionTable.upperOf(entry);
+				if (lower >= beta) {
+					return lower;
+				}
+				if (upper <= alpha) {
+					return upper;
+				}
+				alpha = Math.max(alpha, lower);
+				beta = Math.min(beta, upper);
+			}
+		}
+
+		int bestValue;
+		int bestTurn = 0;
+
+		// Check if leaf node has been reached
+		facts = factsOf(board, position, facts, false);
+		if (depth == 0 || PositionFacts.isEnd(facts)) {
+			bestValue = evaluateBoard(board, facts);
+
+		} else {
+			boolean maximising = (player == callingPlayer);
+			char[] movers = moversOf(player);
+			char nextPlayer = nextToSearch(player);
+			int a = alpha;
+			int b = beta;
+			int searched = 0;
+			bestValue = maximising ? -INFINITY : INFINITY;
+
+			MinimaxBoard[] children = null;
+			int[] leafScores = null;
+			int firstColumn = 0;
+
+			int[] order = orderMoves(movers);
+			for (int i = -1; i < order.length; i++) {
+				//Try the stored best move first, then the rest by history and from the centre outwards
+				//Moves are numbered column + width * mover, so one mover's moves are just columns
+				int move = (i < 0) ? tableMove : order[i];
+				if (move == 0 || (i >= 0 && move == tableMove) || move > Board.BOARD_WIDTH * movers.length) {
+					continue;
+				}
+				int column = (move - 1) % Board.BOARD_WIDTH + 1;
+				char mover = movers[(move - 1) / Board.BOARD_WIDTH];
+
+				//Above the horizon, score the remaining leaves in one pass once the first has not cut off
+				if (batchLeaves && evaluator == null && depth == 1 && searched == 1 && leafScores == null && movers.length == 1) {
+					children = new MinimaxBoard[Board.BOARD_WIDTH];
+					leafScores = evaluateLeaves(board, player, extended, firstColumn, children);
+				}
+				MinimaxBoard child = (children != null) ? children[column-1] : createChild(board, mover, column);
+				if (child == null) {
+					continue;
+				}
+
+				//Shift window by the column weighting added to the child score
+				int weight = weightColumn(column);
+				int value;
+				if (leafScores != null && leafScores[column] != UNSCORED) {
+					value = leafScores[column] + weight;
+				} else if (!root && reductionPlies > 0 && searched >= fullDepthMoves && depth >= MIN_REDUCTION_DEPTH) {
+					//Late column - search reduced, then at full depth only if it improves the bound
+					int reduced = Math.max(depth - 1 - reductionPlies, 0);
+					value = alphaBeta(child, reduced, nextPlayer, a - weight, b - weight, false, extended) + weight;
+					if (maximising ? value > a : value < b) {
+						value = alphaBeta(child, depth-1, nextPlayer, a - weight, b - weight, false, extended) + weight;
+					}
+				} else {
+					value = alphaBeta(child, depth-1, nextPlayer, a - weight, b - weight, false, extended) + weight;
+				}
+				searched++;
+				if (firstColumn == 0) {
+					firstColumn = move;
+				}
+				if (aborted) {
+					return 0;
+				}
+
+				if (maximising && value > bestValue) {
+					bestValue = value;
+					bestTurn = move;
+					a = Math.max(a, value);
+				} else if (!maximising && value < bestValue) {
+					bestValue = value;
+					bestTurn = move;
+					b = Math.min(b, value);
+				}
+				if (a >= b) {
+					history[Counter.indexOf(mover)][column] += depth * depth;
+					break;
+				}
+			}
+		}
+	
+		if (aborted) {
+			return 0;
+		}
+
+		// Store result as a bound unless it lies strictly inside the window
+		int lower = (bestValue > alpha) ? bestValue : -INFINITY;
+		int upper = (bestValue < beta) ? bestValue : INFINITY;
+		table.store(key, depth, lower, upper, bestTurn);
+
+		if (root && bestTurn != 0 && bestValue > alpha) {
+			bestColumn = bestTurn;
+		}
+		return bestValue;
+	}
+
+	/**
+	 * Creates the children of a node one ply above the horizon and scores the leaves among them,
+	 * scoring those still in play together in one batch.
+	 * Children that would be extended or looked up in the tablebase are left for the normal search.
+	 * @param parent
+	 * 		the board to create children of
+	 * @param player
+	 * 		the counter for the player to move
+	 * @param extended
+	 * 		the number of threat extensions already made along this line of play
+	 * @param searchedColumn
+	 * 		a column already searched, which is skipped
+	 * @param children
+	 * 		receives the child board of each column, or null for full or skipped columns
+	 * @return scores
+	 * 		leaf score indexed by column (1-7), or UNSCORED if full or left for the normal search
+	 * @throws CloneNotSupportedException
+	 * 		Exception if clone is attempted on class where clone is not supported.
+	 */
+	private int[] evaluateLeaves(MinimaxBoard parent, char player, int extended, int searchedColumn,
+			MinimaxBoard[] children) throws CloneNotSupportedException {
+		int[] scores = new int[Board.BOARD_WIDTH + 1];
+		int[] laneColumns = new int[BatchEvaluator.LANES];
+		int[] laneScores = new int[BatchEvaluator.LANES];
+		batch.clear();
+
+		for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+			MinimaxBoard child = (column == searchedColumn) ? null : createChild(parent, player, column);
+			children[column-1] = child;
+			scores[column] = UNSCORED;
+
+			if (child == null) {
+				continue;
+			}
+			long position = Zobrist.position(child);
+			long facts = factsOf(child, position, PositionFacts.UNKNOWN, extended < maxExtensions);
+			if ((extended < maxExtensions && PositionFacts.hasThreat(facts))
+					|| (tablebase != null && tablebase.covers(child))
+					|| (windowCutoffs && !child.getWindows().hasOpenWindow())) {
+				continue;
+			}
+			nodes++;
+			if (PositionFacts.isEnd(facts)) {
+				scores[column] = evaluateBoard(child, facts);
+			} else {
+				laneColumns[batch.add(child, callingPlayer)] = column;
+			}
+		}
+
+		batch.evaluate(parent.getGameWinAmount(), parameters.getStreakBonus(), laneScores);
+		for (int lane = 0; lane < batch.size(); lane++) {
+			scores[laneColumns[lane]] = laneScores[lane];
+		}
+		return scores;
+	}
+
+	/**
+	 * Checks the stop request, time limit and node limit every few nodes.
+	 * @return aborted
+	 * 		true once the running search must stop
+	 */
+	private boolean checkStop() {
+		if (!aborted && nodes % STOP_CHECK_INTERVAL == 0) {
+			aborted = stopRequested
+					|| (deadline != 0 && System.nanoTime() >= deadline)
+					|| (nodeLimit != 0 && nodes >= nodeLimit);
+		}
+		return aborted;
+	}
+
 	/**
 	 * Creates clones of current board and places player counter in each column.
+	 * @param parent
+	 * 		the board to create children of
 	 * @param currentPlayer
 	 * 		the counter for the current player to place in the columns
+	 * @return children
+	 * 		one board per column, marked unusable if the column is full
 	 * @throws CloneNotSupportedException
 	 * 		Exception if clone is attempted on class where clone is not supported.
 	 */
-	private void createChildren(char currentPlayer) throws CloneNotSupportedException {
-		int rows = Board.BOARD_HEIGHT;
+	private MinimaxBoard[] createChildren(MinimaxBoard parent, char currentPlayer) throws CloneNotSupportedException {
 		int columns = Board.BOARD_WIDTH;
-		char[][] newBoard = new char[rows][columns];
-		children = new MinimaxBoard[columns];
+		MinimaxBoard[] children = new MinimaxBoard[columns];
 		
 		//Loop through and perform actions for each column
 		for (int i = 0; i < columns; i++) {
+			//Columns received as 1-7 not 0-6, hence i+1
+			children[i] = createChild(parent, currentPlayer, i+1);
 			
-			//Create clone of board variable (2D char array object) in Board class
-			for (int j = 0; j < rows; j++) {
-				//Clone one row array at a time.
-				newBoard[j] = board.getBoard()[j].clone();
-			}
-			
-			//Create clone of Board and set board array
-			children[i] = (MinimaxBoard) board.clone();
-			children[i].setBoard(newBoard.clone());
-			
-			//Place counter at new location (receives columns 1-7 not 0-6, hence i+1)
-			if (!children[i].placeCounter(currentPlayer, i+1)) {
-				//Do not use board if counter cannot be placed - false returned
+			if (children[i] == null) {
+				//Do not use board if counter cannot be placed
+				children[i] = parent.clone();
 				children[i].setUsable(false);
 			}
 		}
+		return children;
+	}
+
+	/**
+	 * Creates a clone of the board with the player counter placed in one column.
+	 * @param parent
+	 * 		the board to clone
+	 * @param currentPlayer
+	 * 		the counter for the current player to place
+	 * @param column
+	 * 		the column to place the counter in (1-7)
+	 * @return child
+	 * 		the new board, or null if the column is full
+	 * @throws CloneNotSupportedException
+	 * 		Exception if clone is attempted on class where clone is not supported.
+	 */
+	private MinimaxBoard createChild(MinimaxBoard parent, char currentPlayer, int column) throws CloneNotSupportedException {
+		if (parent.getBoard()[0][column-1] != Board.BOARD_SPACE) {
+			return null;
+		}
+		char[][] newBoard = new char[Board.BOARD_HEIGHT][];
+
+		//Clone one row array at a time
+		for (int j = 0; j < Board.BOARD_HEIGHT; j++) {
+			newBoard[j] = parent.getBoard()[j].clone();
+		}
+
+		//Create clone of Board and set board array
+		MinimaxBoard child = parent.clone();
+		child.setBoard(newBoard);
+		child.placeCounter(currentPlayer, column);
+		return child;
+	}
+
+	/**
+	 * Finds the first column that is not full, searching from the centre outwards.
+	 * @param board
+	 * 		the board to search
+	 * @return column
+	 * 		the first open column
+	 */
+	private int firstLegalColumn(Board board) {
+		int column = COLUMN_ORDER[0];
+		for (int i = COLUMN_ORDER.length - 1; i >= 0; i--) {
+			if (board.getBoard()[0][COLUMN_ORDER[i]-1] == Board.BOARD_SPACE) {
+				column = COLUMN_ORDER[i];
+			}
+		}
+		return column;
 	}
 	
 	/**
 	 * Evaluates state of board at leaf nodes.
+	 * @param board
+	 * 		the board to evaluate
 	 * @return score
 	 * 		Heuristic score of the board related to the calling player
 	 */
-	private int evaluateBoard() {
+	private int evaluateBoard(MinimaxBoard board) {
+		long facts = board.isUsable() ? PositionFacts.of(board, PositionFacts.UNKNOWN, false) : PositionFacts.UNKNOWN;
+		return evaluateBoard(board, facts);
+	}
+
+	/**
+	 * Evaluates state of board at leaf nodes, with the winner and draw state already found.
+	 * @param board
+	 * 		the board to evaluate
+	 * @param facts
+	 * 		the position facts of the board
+	 * @return score
+	 * 		Heuristic score of the board related to the calling player
+	 */
+	private int evaluateBoard(MinimaxBoard board, long facts) {
 		int score = 0;
 		boolean end = false;
+		char winner = PositionFacts.winnerOf(facts);
 		
 		//Minimum score for leaf nodes that did not place a counter
 		if (!board.isUsable()) {
-			score = Integer.MIN_VALUE;
+			score = LOSS_SCORE;
 			end = true;
 			
-		} else if (board.checkDraw()) { 
+		} else if (PositionFacts.isDrawn(facts)) { 
 			//Keep score at 0 for draw - do not evaluate
 			end = true;
 			
-		} else {
-			// Check if any player has won the game
-			for (char counter : Counter.playerSymbols) {
-				if (board.checkWin(counter) && counter == callingPlayer) {
-					//Max score if calling player has won the game (minus max weighting to prevent overflow)
-					score = Integer.MAX_VALUE - weightColumn((board.getBoard()[0].length+1)/2);
-					end = true;
+		} else if (winner == callingPlayer) {
+			//Max score if calling player has won the game
+			score = WIN_SCORE;
+			end = true;
 					
-				} else if (board.checkWin(counter) && counter != callingPlayer) {
-					//Minimum score if any other player has won
-					score = Integer.MIN_VALUE;
-					end = true;
-				}
-			}
+		} else if (winner != 0) {
+			//Minimum score if any other player has won
+			score = LOSS_SCORE;
+			end = true;
 		}
 
-		// Else find the best streak for the calling player
-		if (end == false) {
-			score = board.findStreak(callingPlayer);
+		// Else score with the learned evaluator if set, or find the best streak for the calling player
+		if (end == false && evaluator != null && evaluator.covers(board)) {
+			score = evaluator.evaluate(board, callingPlayer);
+		} else if (end == false) {
+			score = board.findStreak(callingPlayer, parameters.getStreakBonus());
 		}
 		return score;
 	}
 
+	/**
+	 * Finds the facts of a board that hold whoever searches it, from the table if a search of any
+	 * player has stored them, and stores what had to be checked for the next search.
+	 * @param board
+	 * 		the board to find the facts of
+	 * @param position
+	 * 		the hash key of the board without the player to move
+	 * @param known
+	 * 		the facts already found at this node, or UNKNOWN
+	 * @param threat
+	 * 		true if whether a player can win with their next counter is needed
+	 * @return facts
+	 */
+	private long factsOf(MinimaxBoard board, long position, long known, boolean threat) {
+		long facts = known;
+		if (facts == PositionFacts.UNKNOWN) {
+			facts = table.probeFacts(position, callingPlayer);
+		}
+		if (facts == PositionFacts.UNKNOWN || (threat && !PositionFacts.isThreatKnown(facts))) {
+			facts = PositionFacts.of(board, facts, threat);
+			table.storeFacts(position, facts, callingPlayer);
+		}
+		return facts;
+	}
+
+	/**
+	 * Computes the transposition table key of a board, kept apart for each calling player and
+	 * search mode.
+	 * @param position
+	 * 		the hash key of the board without the player to move
+	 * @param player
+	 * 		the counter of the player to move
+	 * @return key
+	 */
+	private long tableKey(long position, char player) {
+		long key = position ^ Zobrist.turn(player) ^ Zobrist.perspective(callingPlayer);
+		if (bestReply) {
+			key ^= Zobrist.bestReply();
+		}
+		return key;
+	}
+
+	/**
+	 * Lists the players whose moves are searched at a node.
+	 * In Best-Reply Search an opponent node holds the moves of every opponent.
+	 * @param player
+	 * 		the counter of the player to move
+	 * @return movers
+	 */
+	private char[] moversOf(char player) {
+		return (bestReply && player != callingPlayer) ? opponents() : new char[] {player};
+	}
+
+	/**
+	 * Finds the player to move at the children of a node.
+	 * In Best-Reply Search one layer of opponent moves leads straight back to the calling player.
+	 * @param player
+	 * 		the counter of the player to move at the node
+	 * @return nextPlayer
+	 */
+	private char nextToSearch(char player) {
+		char next = nextPlayer(player);
+		if (bestReply) {
+			next = (player == callingPlayer) ? nextPlayer(callingPlayer) : callingPlayer;
+		}
+		return next;
+	}
+
+	/**
+	 * Halves the history counts at the start of a search, so recent cut-offs count for most and
+	 * the counts stay bounded.
+	 */
+	private void ageHistory() {
+		for (int[] counts : history) {
+			for (int column = 0; column < counts.length; column++) {
+				counts[column] /= 2;
+			}
+		}
+	}
+
+	/**
+	 * Orders the moves of a node by how often each has caused a cut-off, breaking ties from the
+	 * centre outwards.
+	 * @param movers
+	 * 		the players whose moves are searched at the node
+	 * @return moves
+	 * 		moves numbered column + width * mover index, best first
+	 */
+	private int[] orderMoves(char[] movers) {
+		int[] moves = new int[COLUMN_ORDER.length * movers.length];
+		int[] scores = new int[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			int column = COLUMN_ORDER[i / movers.length];
+			int mover = i % movers.length;
+			int score = history[Counter.indexOf(movers[mover])][column];
+			//Insertion sort - stable, and quick for seven to fourteen moves
+			int j = i;
+			while (j > 0 && scores[j-1] < score) {
+				moves[j] = moves[j-1];
+				scores[j] = scores[j-1];
+				j--;
+			}
+			moves[j] = column + Board.BOARD_WIDTH * mover;
+			scores[j] = score;
+		}
+		return moves;
+	}
+
+	/**
+	 * Lists the opponents of the calling player in turn order.
+	 * @return opponents
+	 * 		the counters of every other player
+	 */
+	private char[] opponents() {
+		char[] opponents = new char[Counter.playerSymbols.length - 1];
+		char opponent = callingPlayer;
+		for (int i = 0; i < opponents.length; i++) {
+			opponent = nextPlayer(opponent);
+			opponents[i] = opponent;
+		}
+		return opponents;
+	}
+
 	/**
 	 * Finds the next player counter to take a turn.
 	 * @param currentPlayer
@@ -217,21 +1479,19 @@ public class BotSearch {
 	 * 		The weighting score of the column
 	 */
 	private int weightColumn(int currentColumn) {
-		int weighting = 0;
-		int columnNumber = (Board.BOARD_WIDTH)+1; //Plus one as columns are input as 1-7, not 0-6.
-		
-		if (currentColumn == columnNumber/2) {
-			//Middle column
-			weighting = 3;
-	
-		} else if (currentColumn >= (columnNumber/2)-1 && currentColumn <= (columnNumber/2)+1) {
-			//One away from middle
-			weighting = 2;
-			
-		} else if (currentColumn >= (columnNumber/2)-2 && currentColumn < (columnNumber/2)+2) {
-			//Two away from middle
-			weighting = 1;
+		return parameters.getColumnWeight(currentColumn);
+	}
+
+	/**
+	 * Finds the bytes allocated so far by the current thread, if the JVM supports it.
+	 * @return bytes
+	 * 		allocated bytes, or 0 if not supported
+	 */
+	private static long allocatedBytes() {
+		long bytes = 0;
+		if (THREADS instanceof com.sun.management.ThreadMXBean) {
+			bytes = ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
 		}
-		return weighting;
+		return Math.max(bytes, 0);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+/**
+ * Search result for one column of a multi-PV analysis: its score and the line of play expected
+ * to follow it. The score of a column shown to be no better than the best column is an upper
+ * bound rather than its exact score.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see BotSearch.java
+ *
+ */
+public class ColumnAnalysis {
+	private final int column;
+	private final int score;
+	private final boolean exact;
+	private final int depth;
+	private final int[] line;
+	private final char[] movers;
+
+	/**
+	 * Constructor sets the result of a column.
+	 * @param column
+	 * 		the column analysed, 1-7
+	 * @param score
+	 * 		the min-max score of playing the column, including its column weighting
+	 * @param exact
+	 * 		true if the score is exact, false if it is an upper bound
+	 * @param depth
+	 * 		the depth of turns searched
+	 * @param line
+	 * 		the columns of the expected line of play, starting with the analysed column
+	 * @param movers
+	 * 		the counter of the player making each move of the line
+	 */
+	ColumnAnalysis(int column, int score, boolean exact, int depth, int[] line, char[] movers) {
+		this.column = column;
+		this.score = score;
+		this.exact = exact;
+		this.depth = depth;
+		this.line = line;
+		this.movers = movers;
+	}
+
+	/**
+	 * Accessor for the column analysed.
+	 * @return column
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Accessor for the score of the column.
+	 * @return score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Accessor for whether the score is exact, or an upper bound for a column no better than the
+	 * best.
+	 * @return exact
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * Accessor for the depth of turns searched.
+	 * @return depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Accessor for the columns of the expected line of play.
+	 * @return line
+	 */
+	public int[] getLine() {
+		return line.clone();
+	}
+
+	/**
+	 * Accessor for the player making each move of the expected line of play.
+	 * @return movers
+	 */
+	public char[] getMovers() {
+		return movers.clone();
+	}
+
+	/**
+	 * Describes the column as its score followed by the line, such as "4: 12 (4r 4y 3b)", with an
+	 * upper bound shown as "<=12".
+	 * @return description
+	 */
+	@Override
+	public String toString() {
+		StringBuilder description = new StringBuilder();
+		description.append(column).append(": ").append(exact ? "" : "<=").append(describeScore(score)).append(" (");
+		for (int i = 0; i < line.length; i++) {
+			if (i > 0) {
+				description.append(' ');
+			}
+			description.append(line[i]).append(movers[i]);
+		}
+		return description.append(')').toString();
+	}
+
+	/**
+	 * Describes a score, naming won and lost positions.
+	 */
+	private static String describeScore(int score) {
+		String description = Integer.toString(score);
+		//Column weighting moves won and lost scores slightly off the exact values
+		if (score > BotSearch.WIN_SCORE / 2) {
+			description = "win";
+		} else if (score < BotSearch.LOSS_SCORE / 2) {
+			description = "loss";
+		}
+		return description;
+	}
+}
\ No newline at end of file
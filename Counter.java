@@ -20,6 +20,19 @@ public class Counter {
 		assignCounter();
 	}
 	
+	/**
+	 * Constructor assigning a given symbol without counting a new player, for players created
+	 * outside the normal game, such as in test harnesses running many games at once.
+	 * @param symbol
+	 * 		the player symbol, one of playerSymbols
+	 */
+	public Counter(char symbol) {
+		if (indexOf(symbol) < 0) {
+			throw new IllegalArgumentException("Not a player symbol: " + symbol);
+		}
+		this.symbol = symbol;
+	}
+	
 	/**
 	 * Accessor for counter symbol.
 	 * @return symbol
@@ -28,6 +41,23 @@ public class Counter {
 		return this.symbol;
 	}
 	
+	/**
+	 * Finds the position of a symbol in the playerSymbols array.
+	 * @param symbol
+	 * 		the player symbol to find
+	 * @return index
+	 * 		the index of the symbol, or -1 if it is not a player symbol
+	 */
+	public static int indexOf(char symbol) {
+		int index = -1;
+		for (int i = 0; i < playerSymbols.length; i++) {
+			if (playerSymbols[i] == symbol) {
+				index = i;
+			}
+		}
+		return index;
+	}
+	
 	/**
 	 * Assigns unique player symbol from playerSymbols array.
 	 */
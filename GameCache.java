@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * Transposition table shared by the robot players of one game.
+ *
+ * The robots search trees one ply apart from each other, so most positions one robot reaches
+ * have already been searched by the robot before it. Their scores cannot be shared, as each
+ * robot's paranoid minimax scores positions for itself, so every robot keeps its entries under
+ * its own keys. What the cache shares are the facts of each position that hold for every player:
+ * who has won, whether it is drawn and whether a player threatens to win. A robot reaching a
+ * position another robot has checked reads them instead of checking the board's lines again.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see TranspositionTable.java
+ *
+ */
+public class GameCache extends TranspositionTable {
+	//Position facts slots for each entry slot
+	private static final int FACT_SHARE = 4;
+	private static final int FACT_PLAYER_SHIFT = 8;
+	//Pairs of the position key XORed with the facts, then the facts
+	private final long[] facts;
+	private final int factMask;
+	private long factProbes;
+	private long factHits;
+	private long crossFactHits;
+
+	/**
+	 * Constructor allocates the cache, rounding the slot count up to a power of two.
+	 * @param slots
+	 * 		the minimum number of slots in the cache
+	 */
+	public GameCache(int slots) {
+		super(slots);
+		int factSlots = Math.max(getSize() / FACT_SHARE, 1);
+		facts = new long[2 * factSlots];
+		factMask = factSlots - 1;
+	}
+
+	/**
+	 * Finds the facts stored for a board by any player's search.
+	 */
+	@Override
+	long probeFacts(long position, char perspective) {
+		int slot = 2 * ((int) position & factMask);
+		long stored = facts[slot + 1];
+		factProbes++;
+		if (stored == PositionFacts.UNKNOWN || (facts[slot] ^ stored) != position) {
+			return PositionFacts.UNKNOWN;
+		}
+		factHits++;
+		if ((stored >>> FACT_PLAYER_SHIFT) != Counter.indexOf(perspective) + 1) {
+			crossFactHits++;
+		}
+		return stored & ((1L << FACT_PLAYER_SHIFT) - 1);
+	}
+
+	/**
+	 * Stores the facts of a board, marked with the player whose search found them.
+	 */
+	@Override
+	void storeFacts(long position, long found, char perspective) {
+		int slot = 2 * ((int) position & factMask);
+		long stored = found | (long) (Counter.indexOf(perspective) + 1) << FACT_PLAYER_SHIFT;
+		facts[slot] = position ^ stored;
+		facts[slot + 1] = stored;
+	}
+
+	@Override
+	TranspositionTable create(int slots) {
+		return new GameCache(slots);
+	}
+
+	@Override
+	long getBytes() {
+		return super.getBytes() + (long) Long.BYTES * facts.length;
+	}
+
+	@Override
+	void clear() {
+		super.clear();
+		Arrays.fill(facts, PositionFacts.UNKNOWN);
+		factProbes = 0;
+		factHits = 0;
+		crossFactHits = 0;
+	}
+
+	/**
+	 * Accessor for the number of position facts looked up.
+	 * @return factProbes
+	 */
+	public long getFactProbes() {
+		return factProbes;
+	}
+
+	/**
+	 * Accessor for the number of position facts lookups that found the facts.
+	 * @return factHits
+	 */
+	public long getFactHits() {
+		return factHits;
+	}
+
+	/**
+	 * Accessor for the number of position facts lookups answered by another player's search.
+	 * @return crossFactHits
+	 */
+	public long getCrossFactHits() {
+		return crossFactHits;
+	}
+
+	/**
+	 * Finds the fraction of position facts lookups that found the facts.
+	 * @return rate
+	 */
+	public double getFactHitRate() {
+		return (factProbes > 0) ? (double) factHits / factProbes : 0;
+	}
+
+	/**
+	 * Finds the fraction of position facts lookups answered by another player's search.
+	 * @return rate
+	 */
+	public double getCrossFactHitRate() {
+		return (factProbes > 0) ? (double) crossFactHits / factProbes : 0;
+	}
+}
\ No newline at end of file
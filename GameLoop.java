@@ -0,0 +1,165 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Event driven game of Connect N.
+ *
+ * Each move is requested from its player asynchronously, and the next move is requested when it
+ * is answered, on whichever thread answered it. No thread waits for a game, so a host can run as
+ * many games at once as its players' searches can keep up with, on the threads of their search
+ * scheduler.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see MyConnectN.java
+ *
+ */
+public class GameLoop {
+	private final Board board;
+	private final Player[] players;
+	private final LineWindows windows;
+	private final long moveMillis;
+	private final CompletableFuture<Character> result = new CompletableFuture<Character>();
+	private Runnable roundListener;
+	private CompletableFuture<Integer> pending;
+	private int turn;
+	private int moves;
+	private boolean deadDraw;
+
+	/**
+	 * Constructor sets up a game from a position with the first player to move.
+	 * @param board
+	 * 		the game board, which the game places counters on
+	 * @param players
+	 * 		the players in turn order
+	 * @param moveMillis
+	 * 		time allowed for each move in milliseconds, or 0 for no limit
+	 */
+	public GameLoop(Board board, Player[] players, long moveMillis) {
+		this.board = board;
+		this.players = players.clone();
+		this.windows = LineWindows.of(board);
+		this.moveMillis = moveMillis;
+	}
+
+	/**
+	 * Sets a listener called after every round of moves and when the game ends.
+	 * @param roundListener
+	 * 		the listener, or null for none
+	 */
+	public synchronized void setRoundListener(Runnable roundListener) {
+		this.roundListener = roundListener;
+	}
+
+	/**
+	 * Starts the game by requesting the first move.
+	 * @return winner
+	 * 		completes with the counter of the winning player, or Board.BOARD_SPACE for a draw
+	 */
+	public CompletableFuture<Character> play() {
+		requestNext();
+		return result;
+	}
+
+	/**
+	 * Abandons the game, cancelling the move being waited for.
+	 */
+	public synchronized void cancel() {
+		if (result.cancel(false)) {
+			if (pending != null) {
+				pending.cancel(false);
+			}
+			for (Player player : players) {
+				player.endGame();
+			}
+		}
+	}
+
+	/**
+	 * Requests a move from the player whose turn it is.
+	 */
+	private synchronized void requestNext() {
+		if (!result.isDone()) {
+			Player player = players[turn];
+			long deadline = (moveMillis > 0) ? System.nanoTime() + moveMillis * 1000000 : 0;
+			CompletableFuture<Integer> move = player.requestMove(board, deadline);
+			pending = move;
+			move.whenComplete((column, error) -> played(player, column, error));
+		}
+	}
+
+	/**
+	 * Places an answered move's counter, then ends the game or requests the next move.
+	 */
+	private synchronized void played(Player player, Integer column, Throwable error) {
+		if (result.isDone()) {
+			return;
+		}
+		if (error != null) {
+			finish();
+			result.completeExceptionally((error instanceof CompletionException && error.getCause() != null)
+					? error.getCause() : error);
+			return;
+		}
+
+		//Place counter - a full column loses the turn
+		char symbol = player.counter.getSymbol();
+		if (board.placeCounter(symbol, column)) {
+			windows.update(board, column);
+		}
+		moves++;
+
+		//Check for end game conditions - win or draw
+		if (board.checkWin(symbol)) {
+			finish();
+			result.complete(symbol);
+		} else if (board.checkDraw() || windows.isDead()) {
+			deadDraw = !board.checkDraw();
+			finish();
+			result.complete((char) Board.BOARD_SPACE);
+		} else {
+			turn = (turn + 1) % players.length;
+			if (turn == 0 && roundListener != null) {
+				roundListener.run();
+			}
+			requestNext();
+		}
+	}
+
+	/**
+	 * Tells every player the game is over and calls the round listener a last time.
+	 */
+	private void finish() {
+		for (Player player : players) {
+			player.endGame();
+		}
+		if (roundListener != null) {
+			roundListener.run();
+		}
+	}
+
+	/**
+	 * Accessor for the game board.
+	 * @return board
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Accessor for the number of moves played.
+	 * @return moves
+	 */
+	public synchronized int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Checks whether the game was drawn early because no player could complete a line.
+	 * @return deadDraw
+	 */
+	public synchronized boolean isDeadDraw() {
+		return deadDraw;
+	}
+}
\ No newline at end of file
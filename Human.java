@@ -1,9 +1,19 @@
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a human player of the game.
  * 
+ * Input is read on a background thread, which answers the move requested, so games wait for the
+ * player without holding a thread of their own. Lines typed before a move is requested are kept
+ * for it.
+ * 
  * @author Jordan Koulouris
  * @version 1.0
  * @release 12/01/2018
@@ -11,7 +21,17 @@ import java.io.InputStreamReader;
  *
  */
 public class Human extends Player {
+	//System property turning on column scores shown before each turn
+	static final String HINTS_PROPERTY = "connectn.hints";
+	private static final int HINT_DEPTH = 6;
 	private BufferedReader input;
+	private BotSearch hints;
+	private final Object hintLock = new Object();
+	private Thread reader;
+	private boolean closed;
+	private final Deque<String> typedAhead = new ArrayDeque<String>();
+	private CompletableFuture<Integer> pending;
+	private Board pendingBoard;
 
 	/**
 	 * Calls Player constructor. Initialises BufferedReader for turn.
@@ -22,7 +42,7 @@ public class Human extends Player {
 	}
 
 	/**
-	 * Reads user input until a valid number is given.
+	 * Waits for user input until a valid number is given.
 	 * @param board
 	 * 		the current state of the game board
 	 * @return position
@@ -30,28 +50,141 @@ public class Human extends Player {
 	 */
 	@Override
 	int getNextMove(Board board) {
-		int position = 0;
-		boolean valid = false;
-		String turn = null;
+		return requestMove(board, 0).join();
+	}
 		
-		while (!valid) {
-			try {
-				//Take input and attempt parse into integer
-				turn = input.readLine();
-				position = Integer.parseInt(turn);
+	/**
+	 * Asks for a move, answered once the player enters a valid column.
+	 * @param board
+	 * 		the current state of the game board
+	 * @param deadline
+	 * 		System.nanoTime by which the move is needed, or 0 for none
+	 * @return position
+	 * 		completes with the validated position, or with a TimeoutException at the deadline
+	 */
+	@Override
+	synchronized CompletableFuture<Integer> requestMove(Board board, long deadline) {
+		CompletableFuture<Integer> move = new CompletableFuture<Integer>();
+		if (Boolean.getBoolean(HINTS_PROPERTY)) {
+			printHints(board, move);
+		}
+		pending = move;
+		pendingBoard = board;
+		move.whenComplete((position, error) -> clearPending(move));
+		if (deadline != 0) {
+			move.orTimeout(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+		}
+		
+		//Use lines typed while waiting for the turn
+		while (!typedAhead.isEmpty() && !move.isDone()) {
+			accept(typedAhead.poll());
+		}
+		if (closed) {
+			move.completeExceptionally(new IllegalStateException("Input has ended"));
+		} else if (reader == null) {
+			reader = new Thread(this::readInput, "human-input");
+			reader.setDaemon(true);
+			reader.start();
+		}
+		return move;
+	}
 				
-				//Validate input
-				if(checkInput(board, position)) {
-					valid = true;
-				} else {
-					System.out.println("Please enter a valid column.");
+	/**
+	 * Reader thread loop - passes each line to the move requested, or keeps it for the next one.
+	 */
+	private void readInput() {
+		try {
+			String turn;
+			while ((turn = input.readLine()) != null) {
+				synchronized (this) {
+					if (pending != null) {
+						accept(turn);
+					} else {
+						typedAhead.add(turn);
+					}
 				}
-				
-			} catch (Exception e) {
-				System.out.println("Please enter a valid column.");
 			}
+		} catch (IOException e) {
+			System.out.println("Input could not be read: " + e.getMessage());
+		}
+		synchronized (this) {
+			closed = true;
+			if (pending != null) {
+				pending.completeExceptionally(new IllegalStateException("Input has ended"));
+			}
+		}
+	}
+
+	/**
+	 * Answers the move requested if a line is a valid column.
+	 * @param turn
+	 * 		the line entered
+	 */
+	private void accept(String turn) {
+		int position = 0;
+		try {
+			//Attempt parse into integer
+			position = Integer.parseInt(turn);
+		} catch (NumberFormatException e) {
+			// Do nothing - position 0 is rejected below
+		}
+				
+		//Validate input
+		if (checkInput(pendingBoard, position)) {
+			pending.complete(position);
+		} else {
+			System.out.println("Please enter a valid column.");
 		}
-		return position;
+	}
+				
+	/**
+	 * Forgets a move request once it is answered, timed out or cancelled.
+	 */
+	private synchronized void clearPending(CompletableFuture<Integer> move) {
+		if (pending == move) {
+			pending = null;
+			pendingBoard = null;
+		}
+	}
+
+	/**
+	 * Prints the score of every column from a multi-PV search, best first, with the line of play
+	 * expected after it. Columns no better than the best show an upper bound on their score.
+	 * The search runs on a background thread, so the move request is not held up, and its scores
+	 * are printed when it completes unless the move has been played by then.
+	 * @param board
+	 * 		the current state of the game board
+	 * @param move
+	 * 		the move requested
+	 */
+	private void printHints(Board board, CompletableFuture<Integer> move) {
+		//Copy the board, as the game moves on while the search runs
+		char[][] cells = new char[Board.BOARD_HEIGHT][];
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			cells[row] = board.getBoard()[row].clone();
+		}
+		Board position = new Board(board.getGameWinAmount());
+		position.setBoard(cells);
+		
+		Thread hint = new Thread(() -> {
+			List<ColumnAnalysis> analyses;
+			//Searches of earlier turns still running finish first
+			synchronized (hintLock) {
+				if (hints == null) {
+					hints = new BotSearch(counter.getSymbol());
+				}
+				analyses = hints.analyseColumns(position, HINT_DEPTH);
+			}
+			if (!move.isDone()) {
+				StringBuilder scores = new StringBuilder("Column scores for " + counter.getSymbol() + ":");
+				for (ColumnAnalysis analysis : analyses) {
+					scores.append(System.lineSeparator()).append("  ").append(analysis);
+				}
+				System.out.println(scores);
+			}
+		}, "human-hints");
+		hint.setDaemon(true);
+		hint.start();
 	}
 
 	/**
@@ -0,0 +1,122 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe log-linear histogram of latencies in nanoseconds.
+ *
+ * Values are grouped into buckets by power of two, each split into a fixed number of linear
+ * sub-buckets, so every recorded value is kept to within 1/32 of its size in constant memory.
+ * Recording is lock free and safe to call from many threads at once.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchTelemetry.java
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	//Enough powers of two to cover more than an hour in nanoseconds
+	private static final int BUCKETS = 43;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS * SUB_BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a single latency.
+	 * @param nanos
+	 * 		the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(indexOf(value));
+		total.incrementAndGet();
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Accessor for the number of recorded values.
+	 * @return count
+	 */
+	public long getCount() {
+		return total.get();
+	}
+
+	/**
+	 * Accessor for the largest recorded value.
+	 * @return max
+	 * 		the largest latency in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Finds the value below which the given percentage of recorded values fall.
+	 * @param percentile
+	 * 		the percentile to find, from 0 to 100
+	 * @return value
+	 * 		the latency in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		long count = total.get();
+		long value = 0;
+
+		if (count > 0) {
+			long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+			long seen = 0;
+			for (int index = 0; index < counts.length(); index++) {
+				seen += counts.get(index);
+				if (seen >= target) {
+					value = Math.min(highestValueAt(index), max.get());
+					break;
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset() {
+		for (int index = 0; index < counts.length(); index++) {
+			counts.set(index, 0);
+		}
+		total.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * Finds the counts index for a value.
+	 */
+	private static int indexOf(long value) {
+		int index;
+		if (value < SUB_BUCKETS) {
+			//Small values are counted exactly in the first bucket
+			index = (int) value;
+		} else {
+			int bucket = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+			int subBucket = (int) (value >>> bucket) & (SUB_BUCKETS - 1);
+			index = Math.min(bucket * SUB_BUCKETS + subBucket, BUCKETS * SUB_BUCKETS - 1);
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the largest value counted at an index.
+	 */
+	private static long highestValueAt(int index) {
+		int bucket = index / SUB_BUCKETS;
+		int subBucket = index % SUB_BUCKETS;
+		long value;
+		if (bucket == 0) {
+			value = subBucket;
+		} else {
+			value = (((long) subBucket + 1) << bucket) - 1;
+		}
+		return value;
+	}
+}
\ No newline at end of file
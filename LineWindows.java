@@ -0,0 +1,234 @@
+/**
+ * Tracks which players can still complete a winning line on a board.
+ *
+ * Every run of gameWinAmount squares in a row, column or diagonal is a window. A window stays
+ * open to a player while it holds no counters of any other player, so once every window holds
+ * counters of two different players nobody can win, and once only one player's windows remain,
+ * only that player can. The windows of each N are listed once, and placing a counter only
+ * updates the windows through its square.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see MinimaxBoard.java
+ *
+ */
+public class LineWindows implements Cloneable {
+	private static final int HEIGHT = Board.BOARD_HEIGHT;
+	private static final int WIDTH = Board.BOARD_WIDTH;
+	private static final byte EMPTY = 0;
+	//Owner of a window holding counters of more than one player
+	private static final byte BLOCKED = -1;
+	private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+	//Windows through each square for each win amount, indexed [N][row * width + column]
+	private static final int[][][] SQUARE_WINDOWS = new int[8][][];
+	private static final int[] WINDOW_COUNTS = new int[8];
+
+	static {
+		for (int N = 2; N <= 7; N++) {
+			listWindows(N);
+		}
+	}
+
+	private final int gameWinAmount;
+	private byte[] owners;
+	private int openWindows;
+	private int[] ownedWindows;
+
+	/**
+	 * Constructor creates the windows of an empty board.
+	 * @param gameWinAmount
+	 * 		the number of counters in a row needed to win, 2-7
+	 */
+	public LineWindows(int gameWinAmount) {
+		this.gameWinAmount = gameWinAmount;
+		this.owners = new byte[WINDOW_COUNTS[gameWinAmount]];
+		this.openWindows = owners.length;
+		this.ownedWindows = new int[Counter.playerSymbols.length];
+	}
+
+	/**
+	 * Creates the windows of a board by adding every counter on it.
+	 * @param board
+	 * 		the board to track
+	 * @return windows
+	 * 		the windows of the board
+	 */
+	public static LineWindows of(Board board) {
+		LineWindows windows = new LineWindows(board.getGameWinAmount());
+		char[][] squares = board.getBoard();
+		for (int row = 0; row < HEIGHT; row++) {
+			for (int column = 0; column < WIDTH; column++) {
+				if (squares[row][column] != Board.BOARD_SPACE) {
+					windows.place(row, column, squares[row][column]);
+				}
+			}
+		}
+		return windows;
+	}
+
+	/**
+	 * Updates the windows through a square after a counter is placed in it.
+	 * @param row
+	 * 		the row of the square
+	 * @param column
+	 * 		the column of the square, from 0
+	 * @param player
+	 * 		the player counter placed
+	 */
+	public void place(int row, int column, char player) {
+		byte owner = (byte) (Counter.indexOf(player) + 1);
+		for (int window : SQUARE_WINDOWS[gameWinAmount][row * WIDTH + column]) {
+			byte current = owners[window];
+			if (current == EMPTY) {
+				owners[window] = owner;
+				openWindows--;
+				ownedWindows[owner - 1]++;
+			} else if (current != owner && current != BLOCKED) {
+				owners[window] = BLOCKED;
+				ownedWindows[current - 1]--;
+			}
+		}
+	}
+
+	/**
+	 * Updates the windows after a counter is dropped into a column of a board.
+	 * @param board
+	 * 		the board after the counter was placed
+	 * @param column
+	 * 		the column played, from 1
+	 */
+	public void update(Board board, int column) {
+		char[][] squares = board.getBoard();
+		int row = 0;
+		while (row < HEIGHT - 1 && squares[row][column-1] == Board.BOARD_SPACE) {
+			row++;
+		}
+		place(row, column - 1, squares[row][column-1]);
+	}
+
+	/**
+	 * Checks if a player still has a window free of other players' counters.
+	 * @param player
+	 * 		the player counter to check
+	 * @return canWin
+	 * 		true if the player could still complete a line
+	 */
+	public boolean canWin(char player) {
+		return openWindows > 0 || ownedWindows[Counter.indexOf(player)] > 0;
+	}
+
+	/**
+	 * Checks if any player other than the given one could still complete a line.
+	 * @param player
+	 * 		the player counter to leave out
+	 * @return canWin
+	 * 		true if another player could still complete a line
+	 */
+	public boolean otherCanWin(char player) {
+		boolean canWin = openWindows > 0;
+		int index = Counter.indexOf(player);
+		for (int other = 0; other < ownedWindows.length; other++) {
+			if (other != index && ownedWindows[other] > 0) {
+				canWin = true;
+			}
+		}
+		return canWin;
+	}
+
+	/**
+	 * Checks if no player can complete a line, so the game can only end in a draw.
+	 * @return dead
+	 * 		true if every window holds counters of more than one player
+	 */
+	public boolean isDead() {
+		boolean dead = (openWindows == 0);
+		for (int owned : ownedWindows) {
+			if (owned > 0) {
+				dead = false;
+			}
+		}
+		return dead;
+	}
+
+	/**
+	 * Finds the only player who can still complete a line, if there is exactly one.
+	 * @return player
+	 * 		the player counter, or BOARD_SPACE if none or several players can still win
+	 */
+	public char getOnlyWinner() {
+		char winner = Board.BOARD_SPACE;
+		int winners = 0;
+		if (openWindows == 0) {
+			for (int player = 0; player < ownedWindows.length; player++) {
+				if (ownedWindows[player] > 0) {
+					winner = Counter.playerSymbols[player];
+					winners++;
+				}
+			}
+		}
+		return (winners == 1) ? winner : Board.BOARD_SPACE;
+	}
+
+	/**
+	 * Checks if some window is still empty, in which case every player can still win.
+	 * @return open
+	 * 		true if at least one window is still empty
+	 */
+	public boolean hasOpenWindow() {
+		return openWindows > 0;
+	}
+
+	/**
+	 * Lists the windows through each square for a win amount.
+	 */
+	private static void listWindows(int N) {
+		int[][] squareWindows = new int[HEIGHT * WIDTH][];
+		int[] sizes = new int[HEIGHT * WIDTH];
+		int[][] windows = new int[HEIGHT * WIDTH * DIRECTIONS.length][];
+		int count = 0;
+
+		for (int row = 0; row < HEIGHT; row++) {
+			for (int column = 0; column < WIDTH; column++) {
+				for (int[] direction : DIRECTIONS) {
+					int lastRow = row + (N - 1) * direction[0];
+					int lastColumn = column + (N - 1) * direction[1];
+					if (lastRow < HEIGHT && lastColumn >= 0 && lastColumn < WIDTH) {
+						int[] squares = new int[N];
+						for (int k = 0; k < N; k++) {
+							squares[k] = (row + k * direction[0]) * WIDTH + column + k * direction[1];
+							sizes[squares[k]]++;
+						}
+						windows[count++] = squares;
+					}
+				}
+			}
+		}
+		for (int square = 0; square < squareWindows.length; square++) {
+			squareWindows[square] = new int[sizes[square]];
+			sizes[square] = 0;
+		}
+		for (int window = 0; window < count; window++) {
+			for (int square : windows[window]) {
+				squareWindows[square][sizes[square]++] = window;
+			}
+		}
+		SQUARE_WINDOWS[N] = squareWindows;
+		WINDOW_COUNTS[N] = count;
+	}
+
+	/**
+	 * Copies the windows, so a child board can be updated without changing its parent.
+	 */
+	@Override
+	public LineWindows clone() {
+		try {
+			LineWindows copy = (LineWindows) super.clone();
+			copy.owners = owners.clone();
+			copy.ownedWindows = ownedWindows.clone();
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Load generator measuring how robot move latency behaves as more games are played at once.
+ *
+ * Games arrive at a fixed average rate with random gaps between them, whether or not earlier
+ * games have finished, and each is played by three robot players on a pool of threads the size
+ * of the concurrency level. The run is repeated for concurrency levels doubling up to a maximum,
+ * recording move latency and game queueing delay percentiles, throughput, process CPU use and
+ * garbage collection pauses for each level, and the report notes where throughput stops growing.
+ * Given a move deadline, the robots search on a shared SearchScheduler with one worker per
+ * processor instead of each on its game's thread, so latency under overload can be compared.
+ * Given a memory cap, every robot's searches share a MemoryBudget, and the report adds the peak
+ * memory charged and how often tables were resized or depth given up to stay under the cap.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see Bot.java
+ *
+ */
+public class LoadTest {
+	private static final long SEED = 2018;
+	//Random rounds played before the robots take over, so games differ
+	private static final int OPENING_ROUNDS = 1;
+	//Throughput must grow by this fraction for a level to count as unsaturated
+	private static final double SATURATION_GAIN = 0.1;
+	private static final int WARM_UP_GAMES = 4;
+
+	private final int games;
+	private final double arrivalRate;
+	private final int N;
+	private final SearchScheduler scheduler;
+	private final long deadlineMillis;
+	private final MemoryBudget budget;
+	private final LatencyHistogram moveLatency = new LatencyHistogram();
+	private final LatencyHistogram queueDelay = new LatencyHistogram();
+	private final LatencyHistogram gcPauses = new LatencyHistogram();
+	private final AtomicLong moves = new AtomicLong();
+	private final AtomicLong nodes = new AtomicLong();
+	private double throughput;
+
+	/**
+	 * Main function to run the load test from the command line.
+	 * @param args
+	 * 		optional maximum concurrent games, games per level, arrivals per second (0 for all at
+	 * 		once), N, report file, move deadline in milliseconds (0 to search without the
+	 * 		scheduler) and memory cap of every game's searches, such as 64m (0 for none)
+	 * @throws IOException
+	 * 		if the report cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int maxConcurrency = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 4;
+		int games = (args.length > 1) ? Integer.parseInt(args[1]) : 24;
+		double arrivalRate = (args.length > 2) ? Double.parseDouble(args[2]) : 0;
+		int N = (args.length > 3) ? Integer.parseInt(args[3]) : 4;
+		Path file = Paths.get((args.length > 4) ? args[4] : "loadtest-report.txt");
+		long deadlineMillis = (args.length > 5) ? Long.parseLong(args[5]) : 0;
+		long memory = (args.length > 6) ? MemoryBudget.parseBytes(args[6]) : 0;
+		SearchScheduler scheduler = (deadlineMillis > 0) ? new SearchScheduler(Runtime.getRuntime().availableProcessors()) : null;
+		MemoryBudget budget = (memory > 0) ? new MemoryBudget(memory, memory) : null;
+
+		List<String> report = new ArrayList<String>();
+		report.add(String.format(Locale.ROOT, "Load test: %d games per level, %s, N = %d, %d processors", games,
+				(arrivalRate > 0) ? arrivalRate + " games/s arriving" : "all games arriving at once", N,
+				Runtime.getRuntime().availableProcessors()));
+		if (scheduler != null) {
+			report.add(String.format(Locale.ROOT, "Scheduled: %d workers, %d ms per move", scheduler.getWorkers(), deadlineMillis));
+		}
+		if (budget != null) {
+			report.add(String.format(Locale.ROOT, "Memory budget: %.1f MB for all searches", megabytes(memory)));
+		}
+		report.add(String.format(Locale.ROOT, "%6s %9s %9s %9s %9s %9s %10s %10s %6s %6s %9s",
+				"games", "moves/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "queue p99", "nodes/s", "cpu %", "gcs", "gc max ms"));
+
+		for (String line : report) {
+			System.out.println(line);
+		}
+
+		//Untimed level so the first measured level does not include compilation
+		new LoadTest(WARM_UP_GAMES, 0, N, scheduler, deadlineMillis, budget).run(1);
+
+		double bestThroughput = 0;
+		int saturation = 0;
+		for (int concurrency = 1; concurrency <= maxConcurrency; concurrency *= 2) {
+			LoadTest test = new LoadTest(games, arrivalRate, N, scheduler, deadlineMillis, budget);
+			if (scheduler != null) {
+				scheduler.reset();
+			}
+			if (budget != null) {
+				budget.reset();
+			}
+			String line = test.run(concurrency);
+			if (scheduler != null) {
+				line += String.format(Locale.ROOT, "   %d missed, fairness %.3f", scheduler.getDeadlineMisses(),
+						scheduler.getFairnessIndex());
+			}
+			if (budget != null) {
+				line += String.format(Locale.ROOT, "   memory peak %.1f MB, %d resizes, %d depth caps",
+						megabytes(budget.getPeakBytes()), budget.getResizes(), budget.getDepthCaps());
+			}
+			report.add(line);
+			System.out.println(line);
+
+			//Saturated once doubling the games in play no longer adds enough throughput
+			double throughput = test.throughput;
+			if (saturation == 0 && bestThroughput > 0 && throughput < bestThroughput * (1 + SATURATION_GAIN)) {
+				saturation = concurrency / 2;
+			}
+			bestThroughput = Math.max(bestThroughput, throughput);
+		}
+		report.add((saturation > 0) ? "Throughput saturates at about " + saturation + " concurrent games"
+				: "Throughput did not saturate up to " + maxConcurrency + " concurrent games");
+
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		Files.write(file, report);
+		System.out.println(report.get(report.size() - 1));
+		System.out.println("Report written to " + file);
+	}
+
+	/**
+	 * Constructor sets the workload of one concurrency level.
+	 * @param games
+	 * 		the number of games to play
+	 * @param arrivalRate
+	 * 		the average number of games arriving per second, or 0 for all at once
+	 * @param N
+	 * 		the number of counters in a row needed to win
+	 * @param scheduler
+	 * 		the scheduler to search on, or null to search on the game threads
+	 * @param deadlineMillis
+	 * 		time allowed for each move on the scheduler in milliseconds
+	 * @param budget
+	 * 		the memory budget of every game's searches, or null for none
+	 */
+	public LoadTest(int games, double arrivalRate, int N, SearchScheduler scheduler, long deadlineMillis,
+			MemoryBudget budget) {
+		this.games = games;
+		this.arrivalRate = arrivalRate;
+		this.N = N;
+		this.scheduler = scheduler;
+		this.deadlineMillis = deadlineMillis;
+		this.budget = budget;
+	}
+
+	/**
+	 * Plays every game with the given number of games in play at once.
+	 * @param concurrency
+	 * 		the number of threads playing games
+	 * @return line
+	 * 		the report line of the level
+	 */
+	public String run(int concurrency) {
+		Board[] openings = SearchBenchmark.randomPositions(games, N, SEED, OPENING_ROUNDS);
+		Random arrivals = new Random(SEED);
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		List<NotificationEmitter> collectors = listenForPauses();
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		long cpuStart = processCpuTime(os);
+		long start = System.nanoTime();
+
+		try {
+			long arrival = start;
+			for (int game = 0; game < games; game++) {
+				//Exponential gaps give a Poisson arrival process at the requested rate
+				if (arrivalRate > 0) {
+					arrival += (long) (-Math.log(1 - arrivals.nextDouble()) / arrivalRate * 1e9);
+					long wait = arrival - System.nanoTime();
+					if (wait > 0) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+				}
+				final Board board = openings[game];
+				final long arrived = arrival;
+				final String name = "game-" + game;
+				results.add(pool.submit(() -> playGame(board, arrived, name)));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Load test game failed", e);
+		} finally {
+			pool.shutdownNow();
+			removeListeners(collectors);
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long cpu = processCpuTime(os) - cpuStart;
+		double cpuUse = (cpu > 0) ? 100.0 * cpu / 1e9 / seconds / os.getAvailableProcessors() : Double.NaN;
+		throughput = moves.get() / seconds;
+		return String.format(Locale.ROOT, "%6d %9.1f %9.2f %9.2f %9.2f %9.2f %10.2f %10.0f %6.1f %6d %9.2f",
+				concurrency, throughput, millis(moveLatency.getPercentile(50)), millis(moveLatency.getPercentile(90)),
+				millis(moveLatency.getPercentile(99)), millis(moveLatency.getMax()), millis(queueDelay.getPercentile(99)),
+				nodes.get() / seconds, cpuUse, gcPauses.getCount(), millis(gcPauses.getMax()));
+	}
+
+	/**
+	 * Plays one game between three robot players, timing each move.
+	 * @param board
+	 * 		the opening position, with the first player to move
+	 * @param arrived
+	 * 		the time the game arrived, from System.nanoTime
+	 * @param name
+	 * 		name of the game for the scheduler's statistics
+	 */
+	private void playGame(Board board, long arrived, String name) {
+		long started = System.nanoTime();
+		queueDelay.record(Math.max(started - arrived, 0));
+		Bot[] players = new Bot[Counter.playerSymbols.length];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = (budget != null) ? new Bot(Counter.playerSymbols[i], budget, name) : new Bot(Counter.playerSymbols[i]);
+			if (scheduler != null) {
+				players[i].setScheduler(scheduler, name, deadlineMillis);
+			}
+		}
+
+		boolean finished = board.checkDraw();
+		while (!finished) {
+			for (Bot player : players) {
+				char symbol = player.counter.getSymbol();
+				long start = System.nanoTime();
+				int move = player.getNextMove(board);
+				moveLatency.record(System.nanoTime() - start);
+				moves.incrementAndGet();
+				nodes.addAndGet(player.search.getNodeCount());
+
+				board.placeCounter(symbol, move);
+				if (board.checkWin(symbol) || board.checkDraw()) {
+					finished = true;
+					break;
+				}
+			}
+		}
+		for (Bot player : players) {
+			player.endGame();
+		}
+	}
+
+	/**
+	 * Records the duration of every stop-the-world collection while the level runs.
+	 * @return collectors
+	 * 		the collectors listened to
+	 */
+	private List<NotificationEmitter> listenForPauses() {
+		List<NotificationEmitter> collectors = new ArrayList<NotificationEmitter>();
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			//Concurrent cycles run alongside the game threads and are not pauses
+			if (collector instanceof NotificationEmitter && !collector.getName().contains("Concurrent")) {
+				((NotificationEmitter) collector).addNotificationListener(pauseListener, null, null);
+				collectors.add((NotificationEmitter) collector);
+			}
+		}
+		return collectors;
+	}
+
+	/**
+	 * Stops recording collections.
+	 */
+	private void removeListeners(List<NotificationEmitter> collectors) {
+		for (NotificationEmitter collector : collectors) {
+			try {
+				collector.removeNotificationListener(pauseListener);
+			} catch (Exception e) {
+				// Do nothing - the listener is already gone
+			}
+		}
+	}
+
+	private final NotificationListener pauseListener = new NotificationListener() {
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+				gcPauses.record(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+			}
+		}
+	};
+
+	/**
+	 * Finds the CPU time used by the process, if the JVM supports it.
+	 * @return nanos
+	 * 		CPU time in nanoseconds, or -1 if not supported
+	 */
+	private static long processCpuTime(OperatingSystemMXBean os) {
+		long nanos = -1;
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			nanos = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		}
+		return nanos;
+	}
+
+	/**
+	 * Converts bytes to megabytes.
+	 */
+	private static double megabytes(long bytes) {
+		return bytes / (1024.0 * 1024.0);
+	}
+
+	/**
+	 * Converts nanoseconds to milliseconds.
+	 */
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
\ No newline at end of file
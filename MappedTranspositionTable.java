@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Transposition table kept in a memory-mapped file outside the Java heap.
+ *
+ * The file survives the programme ending, so later games start with the positions searched by
+ * earlier ones, and any number of threads or processes mapping the same file share it. Slots are
+ * read and written without locks as two aligned 64 bit words; a slot torn by a concurrent writer
+ * fails the key check and is treated as empty. The slot count is fixed when the file is created,
+ * as is the fingerprint of the search settings whose scores the file holds.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see TranspositionTable.java
+ *
+ */
+public class MappedTranspositionTable extends TranspositionTable {
+	static final int MAGIC = 0x43345454;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+	private static final int SLOT_BYTES = 16;
+	//Largest table that fits a single mapping, which must be under 2 GiB
+	private static final int MAX_SLOTS = 1 << 26;
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final MappedByteBuffer slots;
+	private final Path file;
+	private final long fingerprint;
+
+	/**
+	 * Constructor maps the slots of an open table file.
+	 */
+	private MappedTranspositionTable(Path file, int size, long fingerprint, MappedByteBuffer slots) {
+		super(size, false);
+		this.file = file;
+		this.fingerprint = fingerprint;
+		this.slots = slots;
+	}
+
+	/**
+	 * Opens a table file, creating it with the given number of slots if it does not exist.
+	 * An existing file keeps the slot count it was created with, and a file created here is
+	 * deleted again if it cannot be mapped.
+	 * @param file
+	 * 		the table file
+	 * @param slots
+	 * 		the minimum number of slots for a new file
+	 * @param fingerprint
+	 * 		fingerprint of the settings of the searches using the table
+	 * @return table
+	 * 		the mapped table
+	 * @throws IOException
+	 * 		if the file cannot be opened, is not a table file or holds scores of other settings
+	 */
+	public static MappedTranspositionTable open(Path file, int slots, long fingerprint) throws IOException {
+		int size = slotCount(Math.min(slots, MAX_SLOTS));
+		boolean created = false;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			if (channel.size() == 0) {
+				created = true;
+				//New file - write header and size the file for every slot
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0).putLong(fingerprint);
+				header.rewind();
+				channel.write(header, 0);
+				channel.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) size * SLOT_BYTES - 1);
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("Not a transposition table file: " + file);
+			}
+			size = header.getInt(8);
+			if (size <= 0 || size > MAX_SLOTS || Integer.bitCount(size) != 1
+					|| channel.size() < HEADER_BYTES + (long) size * SLOT_BYTES) {
+				throw new IOException("Transposition table file is damaged: " + file);
+			}
+			//Scores stored under other evaluation or search settings would mislead the search
+			if (header.getLong(16) != fingerprint) {
+				throw new IOException("Transposition table file holds scores of other search settings: " + file);
+			}
+			MappedByteBuffer slotBuffer = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, (long) size * SLOT_BYTES);
+			slotBuffer.order(ByteOrder.LITTLE_ENDIAN);
+			return new MappedTranspositionTable(file, size, fingerprint, slotBuffer);
+		} catch (IOException | RuntimeException e) {
+			if (created) {
+				Files.deleteIfExists(file);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens a table file, returning null and reporting the problem if it cannot be used.
+	 * @param file
+	 * 		the table file
+	 * @param slots
+	 * 		the minimum number of slots for a new file
+	 * @param fingerprint
+	 * 		fingerprint of the settings of the searches using the table
+	 * @return table
+	 * 		the mapped table, or null
+	 */
+	public static MappedTranspositionTable openOrNull(Path file, int slots, long fingerprint) {
+		MappedTranspositionTable table = null;
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			table = open(file, slots, fingerprint);
+		} catch (IOException | RuntimeException e) {
+			//A file the platform cannot map is no reason to stop the game
+			System.err.println("Shared transposition table not used: " + e.getMessage());
+		}
+		return table;
+	}
+
+	@Override
+	long readSlot(int slot, long key) {
+		int offset = slot * SLOT_BYTES;
+		long check = (long) LONGS.getOpaque(slots, offset);
+		long entry = (long) LONGS.getOpaque(slots, offset + 8);
+		return (entry != EMPTY && (check ^ entry) == key) ? entry : EMPTY;
+	}
+
+	@Override
+	void writeSlot(int slot, long key, long entry) {
+		int offset = slot * SLOT_BYTES;
+		LONGS.setOpaque(slots, offset, key ^ entry);
+		LONGS.setOpaque(slots, offset + 8, entry);
+	}
+
+	@Override
+	void clear() {
+		super.clear();
+		for (int offset = 0; offset < slots.capacity(); offset += 8) {
+			LONGS.setOpaque(slots, offset, 0L);
+		}
+	}
+
+	/**
+	 * Writes changed slots through to the file.
+	 */
+	public void flush() {
+		slots.force();
+	}
+
+	/**
+	 * Accessor for the table file.
+	 * @return file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Accessor for the fingerprint of the search settings the file was created for.
+	 * @return fingerprint
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,414 @@
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Memory budget of the robot players' searches, with a cap for the whole process and for each
+ * game, published over JMX as "ConnectN:type=MemoryBudget".
+ *
+ * Before each move a robot's search is charged for its transposition table, counted once for a
+ * table shared by the robots of a game, and for the boards it holds along the line being searched,
+ * estimated per ply of depth. The table is then shrunk or grown, keeping as many entries as fit,
+ * to the largest size up to the default that leaves the game within its cap and within an equal
+ * share of the process cap. Tables are only resized as their own game moves, so a search running
+ * on another thread is never disturbed: when a game arrives, the other games shrink to the new
+ * share at their next move, and the new game's tables only grow into the room they have left.
+ * Tables only change size in powers of two, so games do not resize on every arrival. A resized
+ * table is a copy, which every search using the table changes to when its next search starts, and
+ * the old table stays charged until no search holds it. A table shared by the robots of a game is
+ * copied once, and a robot still holding the old table when it is first charged changes to the
+ * same copy, so the robots keep sharing. Depth is only reduced when even the smallest table
+ * leaves no room for the line, and a table that cannot be allocated for lack of heap is retried
+ * at half the size, so searches get weaker under pressure instead of failing. Tables kept outside
+ * the heap, such as the table file, are not charged.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see MemoryBudgetMBean.java
+ *
+ */
+public class MemoryBudget implements MemoryBudgetMBean {
+	public static final String OBJECT_NAME = "ConnectN:type=MemoryBudget";
+	//Smallest table a search is given, however little memory is left
+	static final int MIN_SLOTS = 1 << 10;
+	private static final long SLOT_BYTES = 2 * Long.BYTES;
+	//Estimated heap held per ply of the line being searched - a child board with its windows and the stack frame
+	static final long PLY_BYTES = 1024;
+	//Estimated heap held by a search whatever its depth - root board, history and batch evaluator
+	static final long SEARCH_BYTES = 8192;
+
+	private final long limit;
+	private final long gameLimit;
+	private final Map<String, Usage> games = new HashMap<String, Usage>();
+	private long used;
+	private long tableBytes;
+	private long peak;
+	private long resizes;
+	private long depthCaps;
+	private long allocationFailures;
+
+	/**
+	 * Constructor sets the caps and registers the budget with the platform MBean server.
+	 * @param limit
+	 * 		the most bytes all searches of the process may use
+	 * @param gameLimit
+	 * 		the most bytes the searches of one game may use
+	 */
+	public MemoryBudget(long limit, long gameLimit) {
+		if (limit <= 0 || gameLimit <= 0) {
+			throw new IllegalArgumentException("Memory limits must be positive");
+		}
+		this.limit = limit;
+		this.gameLimit = Math.min(gameLimit, limit);
+		register();
+	}
+
+	/**
+	 * Reads a size in bytes, with an optional k, m or g suffix.
+	 * @param text
+	 * 		the size, such as 512m
+	 * @return bytes
+	 * @throws NumberFormatException
+	 * 		if the text is not a size
+	 */
+	public static long parseBytes(String text) {
+		String size = text.trim().toLowerCase(Locale.ROOT);
+		int shift = 0;
+		if (size.endsWith("k")) {
+			shift = 10;
+		} else if (size.endsWith("m")) {
+			shift = 20;
+		} else if (size.endsWith("g")) {
+			shift = 30;
+		}
+		if (shift > 0) {
+			size = size.substring(0, size.length() - 1);
+		}
+		return Long.parseLong(size) << shift;
+	}
+
+	/**
+	 * Charges a search before a move, resizing the tables of its game and limiting its depth to
+	 * fit the budget.
+	 * @param game
+	 * 		name of the game the search plays in
+	 * @param search
+	 * 		the search about to run
+	 * @param depth
+	 * 		the depth the move is to be searched to
+	 */
+	public synchronized void prepare(String game, BotSearch search, int depth) {
+		Usage usage = games.get(game);
+		if (usage == null) {
+			usage = new Usage();
+			games.put(game, usage);
+		}
+		//Stop charging the tables searches have let go of since they were last seen
+		for (Usage other : games.values()) {
+			uncharge(other);
+			other.settle();
+			charge(other);
+		}
+		uncharge(usage);
+		usage.tables.put(search, search.getTranspositionTable());
+		usage.lines.remove(search);
+
+		//Each game may use an equal share of the process, given up by games above it at their next move
+		long room = Math.min(gameLimit, limit / games.size());
+
+		//The line is small beside the tables, so depth is only given up once the tables are at their smallest
+		int allowed = Math.min(depth, BotSearch.MAX_DEPTH);
+		long lineRoom = room - usage.lineBytes() - usage.liveTables().size() * MIN_SLOTS * SLOT_BYTES - SEARCH_BYTES;
+		if (lineRoom < allowed * PLY_BYTES) {
+			allowed = (int) Math.max(lineRoom / PLY_BYTES, 1);
+			depthCaps++;
+		}
+		search.setDepthLimit(allowed);
+		usage.lines.put(search, SEARCH_BYTES + allowed * PLY_BYTES);
+
+		//Tables other games have yet to give up leave less than the share for now
+		fit(usage, search, Math.min(room, limit - used));
+		charge(usage);
+	}
+
+	/**
+	 * Resizes the table of the search about to move to an equal part of the room its game's lines
+	 * leave, as large as fits beside the game's other tables up to the default size, and hands
+	 * each search the newest copy of its table. The other robots' own tables are resized at their
+	 * own moves, so no copy is made while a search still holds the table it replaces.
+	 */
+	private void fit(Usage usage, BotSearch moving, long room) {
+		Set<TranspositionTable> tables = usage.liveTables();
+		TranspositionTable table = usage.latest(moving);
+		if (tables.contains(table)) {
+			long others = 0;
+			for (TranspositionTable other : tables) {
+				others += (other != table) ? other.getBytes() : 0;
+			}
+			long tableRoom = Math.min((room - usage.lineBytes()) / tables.size(), room - usage.lineBytes() - others);
+			//A game cache keeps position facts beside its slots
+			long slotBytes = Math.max(table.getBytes() / table.getSize(), SLOT_BYTES);
+			int target = TranspositionTable.slotCount(BotSearch.TABLE_SLOTS);
+			while (target > MIN_SLOTS && target * slotBytes > tableRoom) {
+				target >>= 1;
+			}
+
+			TranspositionTable replacement = null;
+			int slots = target;
+			while (replacement == null && slots >= MIN_SLOTS && slots != table.getSize()) {
+				try {
+					replacement = table.resized(slots);
+				} catch (OutOfMemoryError e) {
+					//Not enough heap left for the table - try again smaller
+					allocationFailures++;
+					slots >>= 1;
+				}
+			}
+			if (replacement != null) {
+				resizes++;
+				usage.replace(table, replacement);
+			}
+		}
+
+		//Searches change table between moves, so one running elsewhere keeps its table until done
+		//The search about to move changes as it starts, so only the others still hold the old table
+		for (Map.Entry<BotSearch, TranspositionTable> entry : usage.tables.entrySet()) {
+			BotSearch search = entry.getKey();
+			TranspositionTable latest = usage.latest(search);
+			if (latest != entry.getValue() && latest != usage.pending.get(search)) {
+				search.replaceTranspositionTable(latest);
+				if (search == moving) {
+					entry.setValue(latest);
+				} else {
+					usage.pending.put(search, latest);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops charging a search, once its game is over.
+	 * @param game
+	 * 		name of the game the search played in
+	 * @param search
+	 * 		the search to stop charging
+	 */
+	public synchronized void release(String game, BotSearch search) {
+		Usage usage = games.get(game);
+		if (usage != null) {
+			uncharge(usage);
+			usage.settle();
+			usage.tables.remove(search);
+			usage.pending.remove(search);
+			usage.lines.remove(search);
+			if (usage.tables.isEmpty()) {
+				games.remove(game);
+			} else {
+				charge(usage);
+			}
+		}
+	}
+
+	/**
+	 * Accessor for the bytes currently charged to one game's searches.
+	 * @param game
+	 * 		name of the game
+	 * @return bytes
+	 */
+	public synchronized long getUsedBytes(String game) {
+		Usage usage = games.get(game);
+		return (usage != null) ? usage.bytes() : 0;
+	}
+
+	private void charge(Usage usage) {
+		used += usage.bytes();
+		tableBytes += usage.tableBytes();
+		peak = Math.max(peak, used);
+	}
+
+	private void uncharge(Usage usage) {
+		used -= usage.bytes();
+		tableBytes -= usage.tableBytes();
+	}
+
+	@Override
+	public long getLimitBytes() {
+		return limit;
+	}
+
+	@Override
+	public long getGameLimitBytes() {
+		return gameLimit;
+	}
+
+	@Override
+	public synchronized long getUsedBytes() {
+		return used;
+	}
+
+	@Override
+	public synchronized long getTableBytes() {
+		return tableBytes;
+	}
+
+	@Override
+	public synchronized long getPeakBytes() {
+		return peak;
+	}
+
+	@Override
+	public synchronized int getGames() {
+		return games.size();
+	}
+
+	@Override
+	public synchronized long getResizes() {
+		return resizes;
+	}
+
+	@Override
+	public synchronized long getDepthCaps() {
+		return depthCaps;
+	}
+
+	@Override
+	public synchronized long getAllocationFailures() {
+		return allocationFailures;
+	}
+
+	@Override
+	public synchronized void reset() {
+		peak = used;
+		resizes = 0;
+		depthCaps = 0;
+		allocationFailures = 0;
+	}
+
+	/**
+	 * Registers the budget with the platform MBean server, replacing an earlier budget's.
+	 * Failure to register is reported but does not stop the game.
+	 */
+	private void register() {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			}
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		} catch (JMException e) {
+			System.err.println("Memory budget not registered: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Memory charged to the searches of one game.
+	 */
+	private static class Usage {
+		//Table each search was using when last seen, and the copy it changes to at its next search
+		private final Map<BotSearch, TranspositionTable> tables = new IdentityHashMap<BotSearch, TranspositionTable>();
+		private final Map<BotSearch, TranspositionTable> pending = new IdentityHashMap<BotSearch, TranspositionTable>();
+		//Newest copy of each resized table, weakly held so replaced tables can be collected
+		private final Map<TranspositionTable, TranspositionTable> replacements = new WeakHashMap<TranspositionTable, TranspositionTable>();
+		private final Map<BotSearch, Long> lines = new IdentityHashMap<BotSearch, Long>();
+
+		/**
+		 * Records the table of each search that has changed to its copy since last seen.
+		 */
+		void settle() {
+			Iterator<Map.Entry<BotSearch, TranspositionTable>> entries = pending.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry<BotSearch, TranspositionTable> entry = entries.next();
+				if (entry.getKey().getNextTranspositionTable() != entry.getValue()) {
+					tables.put(entry.getKey(), entry.getKey().getTranspositionTable());
+					entries.remove();
+				}
+			}
+		}
+
+		/**
+		 * Finds the newest copy of the table a search uses or is changing to.
+		 */
+		TranspositionTable latest(BotSearch search) {
+			TranspositionTable table = pending.containsKey(search) ? pending.get(search) : tables.get(search);
+			TranspositionTable copy;
+			while ((copy = replacements.get(table)) != null) {
+				table = copy;
+			}
+			return table;
+		}
+
+		/**
+		 * Records the copy replacing a table, for every table it had already replaced too.
+		 */
+		void replace(TranspositionTable table, TranspositionTable copy) {
+			for (Map.Entry<TranspositionTable, TranspositionTable> entry : replacements.entrySet()) {
+				if (entry.getValue() == table) {
+					entry.setValue(copy);
+				}
+			}
+			replacements.put(table, copy);
+		}
+
+		/**
+		 * Lists the newest heap tables of the game's searches, counting a table shared by its robots once.
+		 */
+		Set<TranspositionTable> liveTables() {
+			Set<TranspositionTable> live = Collections.newSetFromMap(new IdentityHashMap<TranspositionTable, Boolean>());
+			for (BotSearch search : tables.keySet()) {
+				TranspositionTable table = latest(search);
+				if (table.getBytes() > 0) {
+					live.add(table);
+				}
+			}
+			return live;
+		}
+
+		/**
+		 * Lists every heap table the game's searches hold or are changing to, each counted once.
+		 */
+		Set<TranspositionTable> heapTables() {
+			Set<TranspositionTable> heap = Collections.newSetFromMap(new IdentityHashMap<TranspositionTable, Boolean>());
+			for (TranspositionTable table : tables.values()) {
+				if (table.getBytes() > 0) {
+					heap.add(table);
+				}
+			}
+			for (TranspositionTable table : pending.values()) {
+				if (table.getBytes() > 0) {
+					heap.add(table);
+				}
+			}
+			return heap;
+		}
+
+		long tableBytes() {
+			long bytes = 0;
+			for (TranspositionTable table : heapTables()) {
+				bytes += table.getBytes();
+			}
+			return bytes;
+		}
+
+		long lineBytes() {
+			long bytes = 0;
+			for (long line : lines.values()) {
+				bytes += line;
+			}
+			return bytes;
+		}
+
+		long bytes() {
+			return tableBytes() + lineBytes();
+		}
+	}
+}
\ No newline at end of file
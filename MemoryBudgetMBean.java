@@ -0,0 +1,61 @@
+/**
+ * Management interface exposing the memory used by robot player searches against their budget.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see MemoryBudget.java
+ *
+ */
+public interface MemoryBudgetMBean {
+
+	/**
+	 * @return the most bytes all searches of the process may use
+	 */
+	long getLimitBytes();
+
+	/**
+	 * @return the most bytes the searches of one game may use
+	 */
+	long getGameLimitBytes();
+
+	/**
+	 * @return the bytes currently charged to every game's searches
+	 */
+	long getUsedBytes();
+
+	/**
+	 * @return the bytes currently charged for transposition tables
+	 */
+	long getTableBytes();
+
+	/**
+	 * @return the most bytes charged at once since the statistics were reset
+	 */
+	long getPeakBytes();
+
+	/**
+	 * @return the number of games with searches charged to the budget
+	 */
+	int getGames();
+
+	/**
+	 * @return the number of tables shrunk or grown to fit the budget
+	 */
+	long getResizes();
+
+	/**
+	 * @return the number of searches given less depth than asked for to fit the budget
+	 */
+	long getDepthCaps();
+
+	/**
+	 * @return the number of table allocations that failed for lack of heap and were retried smaller
+	 */
+	long getAllocationFailures();
+
+	/**
+	 * Clears the peak and the counts of resizes, depth caps and allocation failures.
+	 */
+	void reset();
+}
\ No newline at end of file
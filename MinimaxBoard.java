@@ -9,6 +9,7 @@
  */
 public class MinimaxBoard extends Board implements Cloneable {
 	private boolean usable;
+	private LineWindows windows;
 	
 	/**
 	 * Constructor calls superclass and sets usable.
@@ -47,6 +48,53 @@ public class MinimaxBoard extends Board implements Cloneable {
 		this.usable = usable;
 	}
 	
+	/**
+	 * Accessor for the winning windows of the board, created from the board on first use and
+	 * then kept up to date as counters are placed.
+	 * @return windows
+	 */
+	public LineWindows getWindows() {
+		if (windows == null) {
+			windows = LineWindows.of(this);
+		}
+		return windows;
+	}
+	
+	/**
+	 * Places a counter and updates the winning windows if they are being tracked.
+	 * @param player
+	 * 		Symbol of player placing the counter.
+	 * @param position
+	 * 		Column to place the counter in.
+	 * @return placed
+	 * 		True if the counter has been placed, false if column is full.
+	 */
+	@Override
+	boolean placeCounter(char player, int position) {
+		boolean placed = super.placeCounter(player, position);
+		if (placed && windows != null) {
+			windows.update(this, position);
+		}
+		return placed;
+	}
+	
+	/**
+	 * Removes the top counter of a column. Winning windows cannot be updated backwards, so they
+	 * are created again from the board on next use.
+	 * @param position
+	 * 		Column to remove the counter from.
+	 * @return removed
+	 * 		True if a counter has been removed, false if column is empty.
+	 */
+	@Override
+	boolean removeCounter(int position) {
+		boolean removed = super.removeCounter(position);
+		if (removed) {
+			windows = null;
+		}
+		return removed;
+	}
+	
 	/**
 	 * Sets char array 'board' to copy of given board
 	 * @param original
@@ -72,20 +120,33 @@ public class MinimaxBoard extends Board implements Cloneable {
 	}
 	
 	/**
-	 * Finds the largest score of new streaks on the board.
+	 * Finds the largest score of new streaks on the board, with the default streak bonus.
 	 * @param player
 	 * 		the player ID to search
 	 * @return maxStreak
 	 * 		the score assigned to the game board for the player.
 	 */
 	int findStreak(char player) {
+		return findStreak(player, SearchParameters.DEFAULTS.getStreakBonus());
+	}
+	
+	/**
+	 * Finds the largest score of new streaks on the board.
+	 * @param player
+	 * 		the player ID to search
+	 * @param streakBonus
+	 * 		the bonus for each vertical or horizontal streak of 3 or more
+	 * @return maxStreak
+	 * 		the score assigned to the game board for the player.
+	 */
+	int findStreak(char player, int streakBonus) {
 		int maxStreak = 0;
 
 		// Search vertical
-		maxStreak += verticalStreak(player);
+		maxStreak += verticalStreak(player, streakBonus);
 		
 		// Search horizontal
-		maxStreak += horizontalStreak(player);
+		maxStreak += horizontalStreak(player, streakBonus);
 		
 		// Search diagonal
 		maxStreak += diagonalStreak(player);
@@ -97,10 +158,12 @@ public class MinimaxBoard extends Board implements Cloneable {
 	 * Searches verticals and assigns score for player streaks.
 	 * @param player
 	 * 		the player counter to search for
+	 * @param streakBonus
+	 * 		the bonus for each streak of 3 or more
 	 * @return vertStreak
 	 * 		the vertical streak score for the player
 	 */
-	private int verticalStreak(char player) {
+	private int verticalStreak(char player, int streakBonus) {
 		int vertStreak = 0;
 		int lineStreak = 0;
 		int spaces = 0;
@@ -120,7 +183,7 @@ public class MinimaxBoard extends Board implements Cloneable {
 			if (gameWinAmount - lineStreak <= spaces && lineStreak > 1) {
 				//Weight streaks of 3 or more
 				if (lineStreak >= 3) {
-					vertStreak += 3;
+					vertStreak += streakBonus;
 				}
 				while (lineStreak > 0) {
 					vertStreak++;
@@ -137,10 +200,12 @@ public class MinimaxBoard extends Board implements Cloneable {
 	 * Searches horizontal and assigns score for player streaks.
 	 * @param player
 	 * 		the player counter to search for
+	 * @param streakBonus
+	 * 		the bonus for each streak of 3 or more
 	 * @return horStreak
 	 * 		the horizontal streak score for the player
 	 */
-	private int horizontalStreak(char player) {
+	private int horizontalStreak(char player, int streakBonus) {
 		int horStreak = 0;
 		int lineStreak = 0;
 		int spaces = 0;
@@ -157,7 +222,7 @@ public class MinimaxBoard extends Board implements Cloneable {
 					if (gameWinAmount - lineStreak <= spaces && lineStreak > 1) {
 						//Weight streaks of 3 or more
 						if (lineStreak >= 3) {
-							horStreak += 3;
+							horStreak += streakBonus;
 						}
 						while (lineStreak > 0) {
 							horStreak++;
@@ -171,7 +236,7 @@ public class MinimaxBoard extends Board implements Cloneable {
 			if (gameWinAmount - lineStreak <= spaces && lineStreak > 1) {
 				//Weight streaks of 3 or more
 				if (lineStreak >= 3) {
-					horStreak += 3;
+					horStreak += streakBonus;
 				}
 				while (lineStreak > 0) {
 					horStreak++;
@@ -313,10 +378,82 @@ public class MinimaxBoard extends Board implements Cloneable {
 		return end;
 	}
 	
+	/**
+	 * Checks if any player can complete a winning line with their next counter.
+	 * @return threat
+	 * 		true if an open column lets any player reach the game win amount
+	 */
+	boolean hasThreat() {
+		boolean threat = false;
+		
+		for (int column = 0; column < BOARD_WIDTH && !threat; column++) {
+			//Find the row the next counter in this column would land in
+			int row = BOARD_HEIGHT - 1;
+			while (row >= 0 && board[row][column] != BOARD_SPACE) {
+				row--;
+			}
+			if (row < 0) {
+				continue;
+			}
+			for (char counter : Counter.playerSymbols) {
+				if (completesLine(row, column, counter)) {
+					threat = true;
+				}
+			}
+		}
+		return threat;
+	}
+	
+	/**
+	 * Checks if a counter placed in an empty square would complete a winning line.
+	 * @param row
+	 * 		the row of the empty square
+	 * @param column
+	 * 		the column of the empty square
+	 * @param player
+	 * 		the player counter to test
+	 * @return completes
+	 * 		true if the line through the square would reach the game win amount
+	 */
+	private boolean completesLine(int row, int column, char player) {
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		boolean completes = false;
+		
+		for (int[] direction : directions) {
+			//Count the square itself plus matching counters both ways along the line
+			int length = 1
+					+ countLine(row, column, direction[0], direction[1], player)
+					+ countLine(row, column, -direction[0], -direction[1], player);
+			if (length >= gameWinAmount) {
+				completes = true;
+			}
+		}
+		return completes;
+	}
+	
+	/**
+	 * Counts consecutive player counters from a square in one direction, excluding the square.
+	 */
+	private int countLine(int row, int column, int rowStep, int columnStep, char player) {
+		int count = 0;
+		int r = row + rowStep;
+		int c = column + columnStep;
+		while (r >= 0 && r < BOARD_HEIGHT && c >= 0 && c < BOARD_WIDTH && board[r][c] == player) {
+			count++;
+			r += rowStep;
+			c += columnStep;
+		}
+		return count;
+	}
+	
 	/**
 	 * Supports cloning of MinimaxBoard.
 	 */
 	public MinimaxBoard clone() throws CloneNotSupportedException {
-		return (MinimaxBoard) super.clone();
+		MinimaxBoard copy = (MinimaxBoard) super.clone();
+		if (windows != null) {
+			copy.windows = windows.clone();
+		}
+		return copy;
 	}
 }
\ No newline at end of file
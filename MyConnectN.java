@@ -1,3 +1,5 @@
+import java.util.concurrent.CompletionException;
+
 /**
  * Game mechanics and main function for Connect N game.
  * 
@@ -53,52 +55,46 @@ public class MyConnectN {
 	 */
 	private void addPlayers(int playerNumber) {
 		players = new Player[playerNumber];
+		//Robots in the game share what they find out about each position
+		GameCache cache = new GameCache(BotSearch.TABLE_SLOTS);
 		for (int i = 0; i < playerNumber; i++) {
 			if (i == 0) {
 				//One human player - always first
 				players[i] = new Human();
 			} else {
-				players[i] = new Bot();
+				Bot bot = new Bot();
+				bot.setGameCache(cache);
+				players[i] = bot;
 			}
 		}
 	}
 	
 	/**
-	 * Runs game in loop until win conditions met.
+	 * Runs game until win conditions met, printing the board once per round (due to only one
+	 * human turn per round).
 	 */
 	private void playGame() {
 		board.printBoard();
 		String end = "";
-		boolean win = false;
+		GameLoop game = new GameLoop(board, players, 0);
+		game.setRoundListener(board::printBoard);
 		
-		while (!win) {
-			for (Player player : players) {
-				char symbol = player.counter.getSymbol();
-				
-				//Take move and place counter
-				int move = player.getNextMove(board);
-				board.placeCounter(symbol, move);
-								
-				//Check for end game conditions - win or draw
-				if (board.checkWin(symbol)) {
-					win = true;
-					
-					//If symbol is the human player
-					if (symbol == players[0].counter.getSymbol()) {
-						end = "Won";
-					} else {
-						end = "Lost";
-					}
-					break;
-					
-				} else if (board.checkDraw()) {
-					win = true;
-					end = "Drawn";
-					break;
+		try {
+			char winner = game.play().join();
+			if (winner == players[0].counter.getSymbol()) {
+				end = "Won";
+			} else if (winner != Board.BOARD_SPACE) {
+				end = "Lost";
+			} else {
+				if (game.isDeadDraw()) {
+					//The draw was declared early once no player could complete a line
+					System.out.println("No player can connect " + board.getGameWinAmount() + " any more.");
 				}
+				end = "Drawn";
 			}
-			//Print board once per round (due to only one human turn per round)
-			board.printBoard();
+		} catch (CompletionException e) {
+			System.out.println("Game stopped: " + e.getCause().getMessage());
+			System.exit(0);
 		}
 		System.out.println("Game Over! You Have " + end + "!!!");
 		System.exit(0);
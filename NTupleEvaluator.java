@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Learned board evaluation using an n-tuple network.
+ *
+ * Each tuple is a fixed group of board cells. The contents of its cells, seen from the player
+ * being scored as empty, own counter, next player's counter or last player's counter, together
+ * with the number of turns before the player moves, index a table of learned weights. The score
+ * of a board is the sum of the weights of every tuple and of its mirror image, estimating the
+ * chance the player wins, so evaluating a board is a few hundred array reads and adds.
+ * The weights are learned by NTupleTrainer and saved in a binary file of 16 bit fixed point
+ * weights for one win amount.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see NTupleTrainer.java
+ *
+ */
+public class NTupleEvaluator {
+	static final int MAGIC = 0x4334544E;
+	static final int VERSION = 1;
+	//Search score of a certain win, far below the score of a won game and never below a draw
+	static final int SCALE = 100;
+	//Fixed point scale of saved weights
+	private static final float WEIGHT_SCALE = 1 << 13;
+	private static final int CELLS = Board.BOARD_HEIGHT * Board.BOARD_WIDTH;
+
+	private final int winAmount;
+	private final int[][] tuples;
+	private final int[][] mirrors;
+	private final float[][] weights;
+
+	/**
+	 * Constructor creates a network of the given tuples with all weights zero.
+	 * @param winAmount
+	 * 		the number of counters in a row needed to win the games the network scores
+	 * @param tuples
+	 * 		the cells of each tuple, numbered row * width + column
+	 */
+	NTupleEvaluator(int winAmount, int[][] tuples) {
+		this.winAmount = winAmount;
+		this.tuples = tuples;
+		mirrors = new int[tuples.length][];
+		weights = new float[tuples.length][];
+		for (int i = 0; i < tuples.length; i++) {
+			mirrors[i] = new int[tuples[i].length];
+			for (int cell = 0; cell < tuples[i].length; cell++) {
+				int row = tuples[i][cell] / Board.BOARD_WIDTH;
+				int column = tuples[i][cell] % Board.BOARD_WIDTH;
+				mirrors[i][cell] = row * Board.BOARD_WIDTH + (Board.BOARD_WIDTH - 1 - column);
+			}
+			weights[i] = new float[Counter.playerSymbols.length << (2 * tuples[i].length)];
+		}
+	}
+
+	/**
+	 * Creates a network of tuples made by random walks between neighbouring cells.
+	 * @param winAmount
+	 * 		the game win amount
+	 * @param count
+	 * 		the number of tuples
+	 * @param length
+	 * 		the number of cells in each tuple
+	 * @param seed
+	 * 		seed for the random walks
+	 * @return evaluator
+	 * 		the network with all weights zero
+	 */
+	static NTupleEvaluator randomTuples(int winAmount, int count, int length, long seed) {
+		Random random = new Random(seed);
+		int[][] tuples = new int[count][];
+		for (int i = 0; i < tuples.length; i++) {
+			int[] tuple = new int[length];
+			int row = random.nextInt(Board.BOARD_HEIGHT);
+			int column = random.nextInt(Board.BOARD_WIDTH);
+			tuple[0] = row * Board.BOARD_WIDTH + column;
+			int cells = 1;
+			while (cells < length) {
+				//Step to any of the eight neighbours, adding cells not already in the tuple
+				row = Math.min(Math.max(row + random.nextInt(3) - 1, 0), Board.BOARD_HEIGHT - 1);
+				column = Math.min(Math.max(column + random.nextInt(3) - 1, 0), Board.BOARD_WIDTH - 1);
+				int cell = row * Board.BOARD_WIDTH + column;
+				boolean repeated = false;
+				for (int j = 0; j < cells; j++) {
+					repeated |= tuple[j] == cell;
+				}
+				if (!repeated) {
+					tuple[cells++] = cell;
+				}
+			}
+			tuples[i] = tuple;
+		}
+		return new NTupleEvaluator(winAmount, tuples);
+	}
+
+	/**
+	 * Reads a network saved by save.
+	 * @param file
+	 * 		the weights file
+	 * @return evaluator
+	 * @throws IOException
+	 * 		if the file cannot be read or is not a weights file
+	 */
+	public static NTupleEvaluator load(Path file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not an n-tuple weights file: " + file);
+			}
+			int winAmount = buffer.getInt();
+			int[][] tuples = new int[buffer.getInt()][];
+			for (int i = 0; i < tuples.length; i++) {
+				tuples[i] = new int[buffer.get()];
+				for (int cell = 0; cell < tuples[i].length; cell++) {
+					tuples[i][cell] = buffer.get();
+					if (tuples[i][cell] < 0 || tuples[i][cell] >= CELLS) {
+						throw new IOException("N-tuple cell outside the board: " + file);
+					}
+				}
+			}
+			NTupleEvaluator evaluator = new NTupleEvaluator(winAmount, tuples);
+			for (float[] table : evaluator.weights) {
+				for (int index = 0; index < table.length; index++) {
+					table[index] = buffer.getShort() / WEIGHT_SCALE;
+				}
+			}
+			return evaluator;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("N-tuple weights file is truncated: " + file);
+		}
+	}
+
+	/**
+	 * Writes the network to a file.
+	 * @param file
+	 * 		the file to create or overwrite
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		int bytes = 16;
+		for (int[] tuple : tuples) {
+			bytes += 1 + tuple.length + 2 * (Counter.playerSymbols.length << (2 * tuple.length));
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(winAmount).putInt(tuples.length);
+		for (int[] tuple : tuples) {
+			buffer.put((byte) tuple.length);
+			for (int cell : tuple) {
+				buffer.put((byte) cell);
+			}
+		}
+		for (float[] table : weights) {
+			for (float weight : table) {
+				int fixed = Math.round(weight * WEIGHT_SCALE);
+				buffer.putShort((short) Math.max(Math.min(fixed, Short.MAX_VALUE), Short.MIN_VALUE));
+			}
+		}
+		Files.write(file, buffer.array());
+	}
+
+	/**
+	 * Default file name of the weights for a win amount.
+	 * @param N
+	 * 		the game win amount
+	 * @return fileName
+	 */
+	static String fileName(int N) {
+		return "ntuple-n" + N + ".c4nt";
+	}
+
+	/**
+	 * Checks whether the network was trained for the game being played on a board.
+	 * @param board
+	 * 		the game board
+	 * @return covered
+	 */
+	public boolean covers(Board board) {
+		return winAmount == board.getGameWinAmount();
+	}
+
+	/**
+	 * Accessor for the win amount the network was trained for.
+	 * @return winAmount
+	 */
+	public int getWinAmount() {
+		return winAmount;
+	}
+
+	/**
+	 * Fingerprint of the tuples and weights, which changes whenever the scores would.
+	 * @return fingerprint
+	 */
+	public long getFingerprint() {
+		long fingerprint = winAmount;
+		for (int i = 0; i < tuples.length; i++) {
+			fingerprint = 31 * fingerprint + Arrays.hashCode(tuples[i]);
+			fingerprint = 31 * fingerprint + Arrays.hashCode(weights[i]);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Scores a board for the search, on the scale of the streak heuristic.
+	 * @param board
+	 * 		the board to evaluate
+	 * @param player
+	 * 		the counter of the player the score is for
+	 * @return score
+	 */
+	public int evaluate(Board board, char player) {
+		return Math.round(value(board, player) * SCALE);
+	}
+
+	/**
+	 * Estimates the chance a player wins.
+	 * @param board
+	 * 		the board to evaluate
+	 * @param player
+	 * 		the counter of the player the estimate is for
+	 * @return value
+	 * 		from 0 for no chance to 1 for a certain win
+	 */
+	float value(Board board, char player) {
+		byte[] states = states(board, player);
+		float value = 0;
+		for (int i = 0; i < tuples.length; i++) {
+			value += weights[i][index(tuples[i], states)] + weights[i][index(mirrors[i], states)];
+		}
+		return value;
+	}
+
+	/**
+	 * Moves the estimate of a board for a player by adding a share of a change to every weight
+	 * used to score it.
+	 * @param board
+	 * 		the board scored
+	 * @param player
+	 * 		the counter of the player the estimate is for
+	 * @param change
+	 * 		the total change to the estimate
+	 */
+	void update(Board board, char player, float change) {
+		byte[] states = states(board, player);
+		float share = change / (2 * tuples.length);
+		for (int i = 0; i < tuples.length; i++) {
+			weights[i][index(tuples[i], states)] += share;
+			weights[i][index(mirrors[i], states)] += share;
+		}
+	}
+
+	/**
+	 * Finds the contents of every cell relative to a player, followed by the number of turns
+	 * before the player moves, with the player to move found from the number of counters.
+	 */
+	private static byte[] states(Board board, char player) {
+		char[][] cells = board.getBoard();
+		int self = Counter.indexOf(player);
+		int players = Counter.playerSymbols.length;
+		byte[] states = new byte[CELLS + 1];
+		int counters = 0;
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			for (int column = 0; column < Board.BOARD_WIDTH; column++) {
+				if (cells[row][column] != Board.BOARD_SPACE) {
+					int owner = Counter.indexOf(cells[row][column]);
+					states[row * Board.BOARD_WIDTH + column] = (byte) ((owner - self + players) % players + 1);
+					counters++;
+				}
+			}
+		}
+		states[CELLS] = (byte) ((self - counters % players + players) % players);
+		return states;
+	}
+
+	/**
+	 * Combines the turns before the player moves and the states of a tuple's cells into its
+	 * weight table index, two bits per cell.
+	 */
+	private static int index(int[] tuple, byte[] states) {
+		int index = states[CELLS];
+		for (int cell : tuple) {
+			index = (index << 2) | states[cell];
+		}
+		return index;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Offline trainer learning n-tuple evaluator weights from self-play.
+ *
+ * The network plays all three players, choosing the move that leads to the board it scores best
+ * for the player moving, with an occasional random move so it keeps meeting new positions. After
+ * every move the estimate of the previous board is moved towards the estimate of the new one, for
+ * each player, and at the end of the game towards whether the player won (temporal difference
+ * learning).
+ * Training a file that already exists continues from its weights, and the weights are saved after
+ * every tenth of the games, so an interrupted run loses little.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see NTupleEvaluator.java
+ *
+ */
+public class NTupleTrainer {
+	private static final long SEED = 2018;
+	private static final int TUPLES = 40;
+	private static final int TUPLE_LENGTH = 5;
+	private static final float LEARNING_RATE = 0.2f;
+	//Chance of a random move, so play does not repeat the same games
+	private static final double EXPLORATION = 0.1;
+	private static final int REPORTS = 10;
+
+	private final NTupleEvaluator evaluator;
+	private final Random random;
+	private double squaredError;
+	private long updates;
+	private long wins;
+	private long draws;
+
+	/**
+	 * Main function to train weights from the command line.
+	 * @param args
+	 * 		optional number of games, N, weights file and seed
+	 * @throws IOException
+	 * 		if the weights cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 300000;
+		int N = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		Path file = Paths.get((args.length > 2) ? args[2] : NTupleEvaluator.fileName(N));
+		long seed = (args.length > 3) ? Long.parseLong(args[3]) : SEED;
+
+		NTupleEvaluator evaluator;
+		if (Files.exists(file)) {
+			evaluator = NTupleEvaluator.load(file);
+			if (evaluator.getWinAmount() != N) {
+				System.out.println(file + " holds weights for N = " + evaluator.getWinAmount());
+				return;
+			}
+			System.out.println("Continuing training of " + file);
+		} else {
+			evaluator = NTupleEvaluator.randomTuples(N, TUPLES, TUPLE_LENGTH, seed);
+		}
+
+		NTupleTrainer trainer = new NTupleTrainer(evaluator, seed);
+		long start = System.currentTimeMillis();
+		int reportEvery = Math.max(games / REPORTS, 1);
+		for (int game = 1; game <= games; game++) {
+			trainer.playGame(N);
+			if (game % reportEvery == 0 || game == games) {
+				evaluator.save(file);
+				System.out.println(String.format(Locale.ROOT, "%8d games  error %.4f  first player wins %.1f%%  draws %.1f%%  %d s",
+						game, trainer.squaredError / Math.max(trainer.updates, 1), 100.0 * trainer.wins / reportEvery,
+						100.0 * trainer.draws / reportEvery, (System.currentTimeMillis() - start) / 1000));
+				trainer.squaredError = 0;
+				trainer.updates = 0;
+				trainer.wins = 0;
+				trainer.draws = 0;
+			}
+		}
+		System.out.println("Weights written to " + file);
+	}
+
+	/**
+	 * Constructor sets the network to train.
+	 * @param evaluator
+	 * 		the network, updated in place
+	 * @param seed
+	 * 		seed for the exploring moves
+	 */
+	public NTupleTrainer(NTupleEvaluator evaluator, long seed) {
+		this.evaluator = evaluator;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Plays one game of self-play from an empty board, learning from every move.
+	 * @param N
+	 * 		the game win amount
+	 */
+	void playGame(int N) {
+		Board board = new Board(N);
+		Board previous = null;
+		boolean finished = false;
+
+		for (int move = 0; !finished; move++) {
+			char symbol = Counter.playerSymbols[move % Counter.playerSymbols.length];
+			board = chooseMove(board, symbol);
+			boolean won = board.checkWin(symbol);
+			finished = won || board.checkDraw();
+
+			//Learn the previous board's value for every player from the board that followed it
+			for (char player : Counter.playerSymbols) {
+				if (previous != null) {
+					float target = finished ? result(won, symbol, player) : evaluator.value(board, player);
+					learn(previous, player, target);
+				}
+			}
+			previous = board;
+
+			if (won && move % Counter.playerSymbols.length == 0) {
+				wins++;
+			} else if (!won && finished) {
+				draws++;
+			}
+		}
+	}
+
+	/**
+	 * Picks the move leading to the board scored best for the player moving, or sometimes a random
+	 * move.
+	 * @param board
+	 * 		the board before the move
+	 * @param symbol
+	 * 		the counter of the player moving
+	 * @return board
+	 * 		a new board after the move
+	 */
+	private Board chooseMove(Board board, char symbol) {
+		Board best = null;
+		float bestValue = Float.NEGATIVE_INFINITY;
+		boolean explore = random.nextDouble() < EXPLORATION;
+
+		for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+			Board next = afterMove(board, symbol, column);
+			if (next != null) {
+				float value = next.checkWin(symbol) ? 1 : evaluator.value(next, symbol);
+				if (explore) {
+					value = random.nextFloat();
+				}
+				if (value > bestValue) {
+					best = next;
+					bestValue = value;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Moves a board's estimate for a player a step towards a target.
+	 */
+	private void learn(Board board, char player, float target) {
+		float error = target - evaluator.value(board, player);
+		evaluator.update(board, player, LEARNING_RATE * error);
+		squaredError += error * error;
+		updates++;
+	}
+
+	/**
+	 * Result of a finished game for a player - 1 for a win, 0 for a draw or another player's win.
+	 * A draw scores no better than a loss so the evaluator never settles for one, as in the search.
+	 */
+	private static float result(boolean won, char winner, char player) {
+		return (won && winner == player) ? 1 : 0;
+	}
+
+	/**
+	 * Copies a board and places a counter in the copy.
+	 * @return board
+	 * 		the new board, or null if the column is full
+	 */
+	private static Board afterMove(Board board, char symbol, int column) {
+		Board next = null;
+		if (board.getBoard()[0][column-1] == Board.BOARD_SPACE) {
+			char[][] cells = new char[Board.BOARD_HEIGHT][];
+			for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+				cells[row] = board.getBoard()[row].clone();
+			}
+			next = new Board(board.getGameWinAmount());
+			next.setBoard(cells);
+			next.placeCounter(symbol, column);
+		}
+		return next;
+	}
+}
\ No newline at end of file
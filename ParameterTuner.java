@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline tuner of the search parameters by simultaneous perturbation stochastic approximation
+ * (SPSA).
+ *
+ * Each iteration nudges every parameter up or down at random, giving two parameter sets either
+ * side of the current one, and plays a batch of games between them at a fixed node budget per
+ * move, seated as in SelfPlay. The difference in their wins estimates the slope in every
+ * direction at once, and the parameters take a step up it. Step and nudge sizes shrink as the
+ * iterations go on. Games run in parallel on one thread per processor, and each thread reuses
+ * its robots with their tables cleared, so the batches are cheap to run.
+ * After every iteration the state is written to a checkpoint file, which a later run resumes
+ * from, and the rounded parameters to the output file Bot loads. Finished runs play the tuned
+ * parameters against the defaults on different openings to check the gain.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchParameters.java
+ *
+ */
+public class ParameterTuner {
+	private static final long SEED = 2018;
+	//Step size a / (k + 1 + A)^0.602 and nudge size c / (k + 1)^0.101 of iteration k
+	private static final double STEP = 20;
+	private static final double STEP_OFFSET = 10;
+	private static final double STEP_DECAY = 0.602;
+	private static final double NUDGE = 1.5;
+	private static final double NUDGE_DECAY = 0.101;
+	//Small tables keep a robot per seat on every thread affordable
+	private static final int TABLE_SLOTS = 1 << 16;
+	private static final int VALIDATION_GAMES = SelfPlay.SEATINGS.length * 16;
+
+	private final int N;
+	private final long nodeBudget;
+	private final ExecutorService pool;
+	private final ThreadLocal<Bot[]> robots = ThreadLocal.withInitial(ParameterTuner::createRobots);
+
+	/**
+	 * Main function to tune the parameters from the command line.
+	 * @param args
+	 * 		optional number of iterations, N, nodes per move, games per iteration and output file
+	 * @throws IOException
+	 * 		if the checkpoint or output file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+		int N = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		long nodes = (args.length > 2) ? Long.parseLong(args[2]) : 2000;
+		int games = (args.length > 3) ? Integer.parseInt(args[3]) : SelfPlay.SEATINGS.length * 4;
+		Path output = Paths.get((args.length > 4) ? args[4] : "search-n" + N + ".params");
+		Path checkpoint = Paths.get(output + ".checkpoint");
+
+		//Round the batch to whole sets of seatings so neither side gains from its seats
+		games = Math.max((games + SelfPlay.SEATINGS.length - 1) / SelfPlay.SEATINGS.length, 1) * SelfPlay.SEATINGS.length;
+		double[] theta = SearchParameters.DEFAULTS.toVector();
+		int start = 0;
+		if (Files.exists(checkpoint)) {
+			start = readCheckpoint(checkpoint, theta);
+			System.out.println("Resuming from iteration " + start + " of " + checkpoint);
+		}
+
+		ParameterTuner tuner = new ParameterTuner(N, nodes, Runtime.getRuntime().availableProcessors());
+		try {
+			long begin = System.currentTimeMillis();
+			for (int k = start; k < iterations; k++) {
+				double score = tuner.iterate(theta, k, games);
+				writeCheckpoint(checkpoint, k + 1, theta);
+				SearchParameters.fromVector(theta).save(output);
+				System.out.println(String.format(Locale.ROOT, "%5d  score %+.3f  %s  %d s", k + 1, score,
+						SearchParameters.fromVector(theta), (System.currentTimeMillis() - begin) / 1000));
+			}
+
+			SearchParameters tuned = SearchParameters.fromVector(theta);
+			System.out.println("Parameters written to " + output);
+			int[] wins = tuner.match(tuned, SearchParameters.DEFAULTS, VALIDATION_GAMES, SEED - 1);
+			System.out.println(String.format(Locale.ROOT, "Validation, %d games: tuned %.1f%%, defaults %.1f%% of seats won",
+					VALIDATION_GAMES, 200.0 * wins[0] / (3 * VALIDATION_GAMES), 200.0 * wins[1] / (3 * VALIDATION_GAMES)));
+		} finally {
+			tuner.shutdown();
+		}
+	}
+
+	/**
+	 * Constructor starts the game threads.
+	 * @param N
+	 * 		the game win amount to tune for
+	 * @param nodeBudget
+	 * 		nodes searched per move
+	 * @param threads
+	 * 		the number of games played at once
+	 */
+	public ParameterTuner(int N, long nodeBudget, int threads) {
+		this.N = N;
+		this.nodeBudget = nodeBudget;
+		this.pool = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+			Thread thread = new Thread(runnable, "tuner-game");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Runs one SPSA iteration, stepping the parameters in place.
+	 * @param theta
+	 * 		the parameters as a vector, unrounded
+	 * @param k
+	 * 		the iteration number, from 0
+	 * @param games
+	 * 		games in the batch, a multiple of the number of seatings
+	 * @return score
+	 * 		the share of games won by the nudged up side less those won by the nudged down side
+	 */
+	double iterate(double[] theta, int k, int games) {
+		double step = STEP / Math.pow(k + 1 + STEP_OFFSET, STEP_DECAY);
+		double nudge = NUDGE / Math.pow(k + 1, NUDGE_DECAY);
+		//Seeded by iteration so a resumed run plays the games it would have played
+		Random random = new Random(SEED + k);
+		double[] direction = new double[theta.length];
+		double[] up = new double[theta.length];
+		double[] down = new double[theta.length];
+		for (int i = 0; i < theta.length; i++) {
+			direction[i] = random.nextBoolean() ? 1 : -1;
+			up[i] = theta[i] + nudge * direction[i];
+			down[i] = theta[i] - nudge * direction[i];
+		}
+
+		int[] wins = match(SearchParameters.fromVector(up), SearchParameters.fromVector(down), games, SEED + k);
+		double score = (double) (wins[0] - wins[1]) / games;
+		for (int i = 0; i < theta.length; i++) {
+			theta[i] += step * score / (2 * nudge * direction[i]);
+			theta[i] = Math.max(Math.min(theta[i], SearchParameters.MAX_VALUE), 0);
+		}
+		return score;
+	}
+
+	/**
+	 * Plays a batch of games between two parameter sets in parallel, from random opening rounds.
+	 * @param first
+	 * 		the parameters of the first side
+	 * @param second
+	 * 		the parameters of the second side
+	 * @param games
+	 * 		the number of games
+	 * @param seed
+	 * 		seed for the openings
+	 * @return wins
+	 * 		the games won by each side
+	 */
+	int[] match(SearchParameters first, SearchParameters second, int games, long seed) {
+		SearchParameters[] sides = {first, second};
+		Board[] openings = SearchBenchmark.randomPositions(games, N, seed, 1);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (int game = 0; game < games; game++) {
+			Board opening = openings[game];
+			int[] seating = SelfPlay.SEATINGS[game % SelfPlay.SEATINGS.length];
+			long gameSeed = seed * 31 + game;
+			results.add(pool.submit(() -> playGame(opening, seating, sides, gameSeed)));
+		}
+
+		int[] wins = new int[sides.length];
+		for (Future<Integer> result : results) {
+			try {
+				int winner = result.get();
+				if (winner >= 0) {
+					wins[winner]++;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Tuning interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Tuning game failed", e.getCause());
+			}
+		}
+		return wins;
+	}
+
+	/**
+	 * Plays one game with the calling thread's robots.
+	 * @return winner
+	 * 		the side of the winning seat, or -1 for a draw
+	 */
+	private int playGame(Board board, int[] seating, SearchParameters[] sides, long seed) {
+		Bot[] players = robots.get();
+		for (int seat = 0; seat < players.length; seat++) {
+			players[seat].setParameters(sides[seating[seat]]);
+			players[seat].setNodeBudget(nodeBudget);
+			players[seat].search.getTranspositionTable().clear();
+			players[seat].setRandomSeed(seed + seat);
+		}
+
+		LineWindows windows = LineWindows.of(board);
+		int winner = -1;
+		boolean finished = board.checkDraw() || windows.isDead();
+		while (!finished) {
+			for (int seat = 0; seat < players.length && !finished; seat++) {
+				char symbol = players[seat].counter.getSymbol();
+				int move = players[seat].getNextMove(board);
+				board.placeCounter(symbol, move);
+				windows.update(board, move);
+				if (board.checkWin(symbol)) {
+					winner = seating[seat];
+					finished = true;
+				} else {
+					finished = board.checkDraw() || windows.isDead();
+				}
+			}
+		}
+		return winner;
+	}
+
+	/**
+	 * Creates the robots of one game thread, one for each seat, with small private tables.
+	 */
+	private static Bot[] createRobots() {
+		Bot[] players = new Bot[Counter.playerSymbols.length];
+		for (int seat = 0; seat < players.length; seat++) {
+			players[seat] = new Bot(Counter.playerSymbols[seat]);
+			players[seat].search.setTranspositionTable(new TranspositionTable(TABLE_SLOTS));
+		}
+		return players;
+	}
+
+	/**
+	 * Stops the game threads.
+	 */
+	void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Reads the iteration and unrounded parameters of a checkpoint.
+	 * @param file
+	 * 		the checkpoint file
+	 * @param theta
+	 * 		receives the parameters
+	 * @return iteration
+	 * 		the number of iterations already run
+	 * @throws IOException
+	 * 		if the file cannot be read or is not a checkpoint
+	 */
+	static int readCheckpoint(Path file, double[] theta) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			properties.load(reader);
+		}
+		try {
+			for (int i = 0; i < theta.length; i++) {
+				theta[i] = Double.parseDouble(properties.getProperty(SearchParameters.name(i), Double.toString(theta[i])));
+			}
+			return Integer.parseInt(properties.getProperty("iteration"));
+		} catch (NumberFormatException e) {
+			throw new IOException("Not a tuning checkpoint: " + file);
+		}
+	}
+
+	/**
+	 * Writes a checkpoint, replacing the previous one only once it is complete.
+	 * @param file
+	 * 		the checkpoint file
+	 * @param iteration
+	 * 		the number of iterations run
+	 * @param theta
+	 * 		the unrounded parameters
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	static void writeCheckpoint(Path file, int iteration, double[] theta) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("iteration", Integer.toString(iteration));
+		for (int i = 0; i < theta.length; i++) {
+			properties.setProperty(SearchParameters.name(i), Double.toString(theta[i]));
+		}
+		Path temporary = Paths.get(file + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.ISO_8859_1)) {
+			properties.store(writer, "SPSA tuning checkpoint");
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,463 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Move generation counter checking the board layer against stored reference counts.
+ *
+ * Counts every line of play of a given number of moves from a position, placing and removing
+ * counters in turn order and stopping each line at a win or draw, along with the wins of each
+ * player and the draws reached on the way. The counts only depend on placeCounter, removeCounter,
+ * checkWin, checkDraw and endGame, so any change to the board that alters them is a bug, and the
+ * time taken measures the board layer without any evaluation. The top plies are split into
+ * fork-join tasks, and an optional table keyed by position and depth counts each transposition
+ * once. The reference counts of each N are recorded by the plain single threaded count.
+ *
+ * Run with "record" to rebuild the reference file, or "count" to print the counts below each
+ * column of one position.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see Board.java
+ *
+ */
+public class Perft {
+	static final String REFERENCE = "perft-reference.txt";
+	private static final long SEED = 2018;
+	private static final int DEPTH = 7;
+	//Counter counts and rounds played of the middle and late game reference positions, the late
+	//game close enough to a full board to reach draws
+	private static final int[] PHASE_COUNTERS = {6, 35};
+	private static final int[] PHASE_ROUNDS = {4, 14};
+	//Remaining depth at and below which a task counts on its own thread
+	private static final int SEQUENTIAL_DEPTH = 5;
+	//Remaining depth below which positions are not worth looking up in the table
+	private static final int MIN_HASH_DEPTH = 2;
+	static final int TABLE_SLOTS = 1 << 20;
+
+	/**
+	 * Main function to check, record or count from the command line.
+	 * @param args
+	 * 		"run" or "record" and optional reference file, or "count" with N, depth and optional
+	 * 		board; "--hash" counts with the transposition table and "--threads=n" sets the
+	 * 		fork-join parallelism
+	 * @throws IOException
+	 * 		if the reference file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		List<String> values = new ArrayList<String>();
+		boolean hash = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (String arg : args) {
+			if (arg.equals("--hash")) {
+				hash = true;
+			} else if (arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(arg.substring("--threads=".length()));
+			} else {
+				values.add(arg);
+			}
+		}
+		String mode = values.isEmpty() ? "run" : values.get(0);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		if (mode.equals("run")) {
+			Path reference = Paths.get((values.size() > 1) ? values.get(1) : REFERENCE);
+			//Non-zero exit status lets build scripts fail on any difference
+			System.exit(run(reference, pool, hash) ? 0 : 1);
+		} else if (mode.equals("record")) {
+			record(Paths.get((values.size() > 1) ? values.get(1) : REFERENCE));
+		} else if (mode.equals("count") && values.size() >= 3) {
+			int N = Integer.parseInt(values.get(1));
+			int depth = Integer.parseInt(values.get(2));
+			Board board = (values.size() > 3) ? RegressionSuite.parseBoard(values.get(3), N) : new Board(N);
+			divide(board, depth, pool, hash);
+		} else {
+			System.out.println("Usage: Perft [run|record] [reference] [--hash] [--threads=n]");
+			System.out.println("       Perft count N depth [board] [--hash] [--threads=n]");
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Counts every reference position in parallel and compares the counts with the reference.
+	 * @param reference
+	 * 		the reference file
+	 * @param pool
+	 * 		the pool to count on
+	 * @param hash
+	 * 		true to count each transposition once
+	 * @return passed
+	 * 		true if every position matched its reference counts
+	 * @throws IOException
+	 * 		if the reference file cannot be read
+	 */
+	static boolean run(Path reference, ForkJoinPool pool, boolean hash) throws IOException {
+		PerftTable table = hash ? new PerftTable(TABLE_SLOTS) : null;
+		long nodes = 0;
+		long time = 0;
+		int failed = 0;
+
+		System.out.println(String.format(Locale.ROOT, "%2s %5s %12s %10s %10s %10s %10s %8s %12s  %s",
+				"N", "depth", "nodes", "r wins", "y wins", "b wins", "draws", "ms", "nodes/s", "result"));
+		for (String line : Files.readAllLines(reference, StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.trim().split("\\s+");
+			int N = Integer.parseInt(fields[0]);
+			int depth = Integer.parseInt(fields[1]);
+			Board board = RegressionSuite.parseBoard(fields[2], N);
+			Counts expected = new Counts();
+			expected.nodes = Long.parseLong(fields[3]);
+			for (int i = 0; i < expected.wins.length; i++) {
+				expected.wins[i] = Long.parseLong(fields[4 + i]);
+			}
+			expected.draws = Long.parseLong(fields[4 + expected.wins.length]);
+
+			long start = System.nanoTime();
+			Counts counts = pool.invoke(new PerftTask(new MinimaxBoard(board), toMove(board), depth, table));
+			long elapsed = System.nanoTime() - start;
+			boolean matches = counts.equals(expected);
+			if (!matches) {
+				failed++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%2d %5d %s %8.1f %12.0f  %s", N, depth, counts,
+					elapsed / 1e6, counts.nodes / (elapsed / 1e9), matches ? "ok" : "MISMATCH, expected " + expected));
+			nodes += counts.nodes;
+			time += elapsed;
+		}
+
+		System.out.println(String.format(Locale.ROOT, "Total: %d nodes in %.1f ms, %.0f nodes/s on %d threads%s", nodes,
+				time / 1e6, nodes / (time / 1e9), pool.getParallelism(), hash ? " with transpositions counted once" : ""));
+		System.out.println((failed == 0) ? "All positions match the reference" : failed + " positions differ from the reference");
+		return failed == 0;
+	}
+
+	/**
+	 * Counts the reference positions with the plain single threaded count and writes them.
+	 * @param reference
+	 * 		the reference file to write
+	 * @throws IOException
+	 * 		if the reference file cannot be written
+	 */
+	static void record(Path reference) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		lines.add("# Perft reference counts - regenerate with: java Perft record");
+		lines.add("# N depth board(top row first, . for space) nodes r-wins y-wins b-wins draws");
+
+		for (int N = 2; N <= 7; N++) {
+			List<Board> positions = new ArrayList<Board>();
+			positions.add(new Board(N));
+			for (int phase = 0; phase < PHASE_COUNTERS.length; phase++) {
+				for (Board board : SearchBenchmark.randomPositions(2000, N, SEED + N, PHASE_ROUNDS[phase])) {
+					if (counters(board) >= PHASE_COUNTERS[phase]) {
+						positions.add(board);
+						break;
+					}
+				}
+			}
+			for (Board board : positions) {
+				Counts counts = new Counts();
+				count(new MinimaxBoard(board), toMove(board), DEPTH, null, counts);
+				lines.add(String.format(Locale.ROOT, "%d %d %s %d %s %d", N, DEPTH, RegressionSuite.formatBoard(board),
+						counts.nodes, join(counts.wins), counts.draws));
+			}
+		}
+		Files.write(reference, lines, StandardCharsets.UTF_8);
+		System.out.println("Recorded " + (lines.size() - 2) + " positions to " + reference);
+	}
+
+	/**
+	 * Prints the counts below each column of a position and their total.
+	 * @param board
+	 * 		the position, with the player to move found from its counter count
+	 * @param depth
+	 * 		the number of moves to count
+	 * @param pool
+	 * 		the pool to count on
+	 * @param hash
+	 * 		true to count each transposition once
+	 */
+	static void divide(Board board, int depth, ForkJoinPool pool, boolean hash) {
+		PerftTable table = hash ? new PerftTable(TABLE_SLOTS) : null;
+		char toMove = toMove(board);
+		char next = nextPlayer(toMove);
+		Counts total = new Counts();
+		long start = System.nanoTime();
+
+		for (int column = 1; column <= Board.BOARD_WIDTH && depth > 0; column++) {
+			MinimaxBoard child = new MinimaxBoard(board);
+			if (!child.placeCounter(toMove, column)) {
+				continue;
+			}
+			Counts counts = new Counts();
+			counts.nodes = (depth == 1) ? 1 : 0;
+			if (child.checkWin(toMove)) {
+				counts.wins[Counter.indexOf(toMove)]++;
+			} else if (child.endGame()) {
+				counts.draws++;
+			} else if (depth > 1) {
+				counts.add(pool.invoke(new PerftTask(child, next, depth - 1, table)));
+			}
+			System.out.println("column " + column + ": " + counts);
+			total.add(counts);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println(String.format(Locale.ROOT, "total:    %s, %.1f ms, %.0f nodes/s", total, elapsed / 1e6,
+				total.nodes / (elapsed / 1e9)));
+	}
+
+	/**
+	 * Counts the lines of play of a number of moves from a position on the calling thread,
+	 * placing and removing counters on the board, which is left as it was.
+	 * @param board
+	 * 		the position, changed while counting
+	 * @param toMove
+	 * 		the counter of the player whose turn it is
+	 * @param depth
+	 * 		the number of moves to count
+	 * @param table
+	 * 		the table counting transpositions once, or null to count every line
+	 * @param counts
+	 * 		the counts to add to
+	 */
+	static void count(MinimaxBoard board, char toMove, int depth, PerftTable table, Counts counts) {
+		if (depth == 0) {
+			counts.nodes++;
+			return;
+		}
+		long key = 0;
+		Counts below = counts;
+		if (table != null && depth >= MIN_HASH_DEPTH) {
+			key = PerftTable.key(board, toMove, depth);
+			if (table.probe(key, counts)) {
+				return;
+			}
+			below = new Counts();
+		}
+
+		char next = nextPlayer(toMove);
+		for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+			if (!board.placeCounter(toMove, column)) {
+				continue;
+			}
+			//A finished game is a line of its own, and is not played on
+			if (depth == 1) {
+				below.nodes++;
+			}
+			if (board.checkWin(toMove)) {
+				below.wins[Counter.indexOf(toMove)]++;
+			} else if (board.endGame()) {
+				below.draws++;
+			} else if (depth > 1) {
+				count(board, next, depth - 1, table, below);
+			}
+			board.removeCounter(column);
+		}
+
+		if (below != counts) {
+			table.store(key, below);
+			counts.add(below);
+		}
+	}
+
+	/**
+	 * Finds the player to move from the number of counters on the board.
+	 */
+	static char toMove(Board board) {
+		return Counter.playerSymbols[counters(board) % Counter.playerSymbols.length];
+	}
+
+	/**
+	 * Counts the counters on a board.
+	 */
+	private static int counters(Board board) {
+		int count = 0;
+		for (char[] row : board.getBoard()) {
+			for (char square : row) {
+				if (square != Board.BOARD_SPACE) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static char nextPlayer(char player) {
+		return Counter.playerSymbols[(Counter.indexOf(player) + 1) % Counter.playerSymbols.length];
+	}
+
+	private static String join(long[] values) {
+		StringBuilder text = new StringBuilder();
+		for (long value : values) {
+			text.append((text.length() > 0) ? " " : "").append(value);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Lines of play counted below a position - the lines of the full depth, and the wins of each
+	 * player and draws that ended lines on the way.
+	 */
+	static class Counts {
+		long nodes;
+		final long[] wins = new long[Counter.playerSymbols.length];
+		long draws;
+
+		void add(Counts other) {
+			nodes += other.nodes;
+			for (int i = 0; i < wins.length; i++) {
+				wins[i] += other.wins[i];
+			}
+			draws += other.draws;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Counts && nodes == ((Counts) other).nodes && draws == ((Counts) other).draws
+					&& Arrays.equals(wins, ((Counts) other).wins);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Long.hashCode(nodes) + Arrays.hashCode(wins)) + Long.hashCode(draws);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%12d", nodes));
+			for (long win : wins) {
+				text.append(String.format(Locale.ROOT, " %10d", win));
+			}
+			return text.append(String.format(Locale.ROOT, " %10d", draws)).toString();
+		}
+	}
+
+	/**
+	 * Task counting the top plies in parallel, each column's subtree as a task of its own, down
+	 * to the depth counted on one thread.
+	 */
+	private static class PerftTask extends RecursiveTask<Counts> {
+		private static final long serialVersionUID = 1L;
+		private final MinimaxBoard board;
+		private final char toMove;
+		private final int depth;
+		private final PerftTable table;
+
+		PerftTask(MinimaxBoard board, char toMove, int depth, PerftTable table) {
+			this.board = board;
+			this.toMove = toMove;
+			this.depth = depth;
+			this.table = table;
+		}
+
+		@Override
+		protected Counts compute() {
+			Counts counts = new Counts();
+			if (depth <= SEQUENTIAL_DEPTH) {
+				count(board, toMove, depth, table, counts);
+				return counts;
+			}
+
+			List<PerftTask> tasks = new ArrayList<PerftTask>();
+			for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+				MinimaxBoard child = new MinimaxBoard(board);
+				if (!child.placeCounter(toMove, column)) {
+					continue;
+				}
+				if (child.checkWin(toMove)) {
+					counts.wins[Counter.indexOf(toMove)]++;
+				} else if (child.endGame()) {
+					counts.draws++;
+				} else {
+					tasks.add(new PerftTask(child, nextPlayer(toMove), depth - 1, table));
+				}
+			}
+			for (PerftTask task : invokeAll(tasks)) {
+				counts.add(task.join());
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * Table of the counts below positions already counted, shared by every task. Each slot's
+	 * check word is the key mixed with its counts, so a slot torn by a concurrent write fails the
+	 * check and reads as empty.
+	 */
+	static class PerftTable {
+		//Fields per slot - the check word, the line count, each player's wins and the draws
+		private static final int STRIDE = 3 + Counter.playerSymbols.length;
+		private static final long DEPTH_MIX = 0x9E3779B97F4A7C15L;
+		private final long[] slots;
+		private final int mask;
+
+		PerftTable(int slots) {
+			int size = TranspositionTable.slotCount(slots);
+			this.slots = new long[size * STRIDE];
+			this.mask = size - 1;
+		}
+
+		/**
+		 * Computes the key of a position counted to a depth.
+		 */
+		static long key(Board board, char toMove, int depth) {
+			return Zobrist.hash(board, toMove) ^ (DEPTH_MIX * depth);
+		}
+
+		/**
+		 * Adds the stored counts of a position to the given counts.
+		 * @return found
+		 * 		true if the position was stored
+		 */
+		boolean probe(long key, Counts counts) {
+			int base = ((int) (key ^ (key >>> 32)) & mask) * STRIDE;
+			long check = slots[base];
+			long nodes = slots[base + 1];
+			long draws = slots[base + 2];
+			long[] wins = new long[Counter.playerSymbols.length];
+			for (int i = 0; i < wins.length; i++) {
+				wins[i] = slots[base + 3 + i];
+			}
+			if (check == 0 || (check ^ mix(nodes, wins, draws)) != key) {
+				return false;
+			}
+			counts.nodes += nodes;
+			for (int i = 0; i < wins.length; i++) {
+				counts.wins[i] += wins[i];
+			}
+			counts.draws += draws;
+			return true;
+		}
+
+		/**
+		 * Stores the counts of a position, replacing whatever the slot held.
+		 */
+		void store(long key, Counts counts) {
+			int base = ((int) (key ^ (key >>> 32)) & mask) * STRIDE;
+			slots[base + 1] = counts.nodes;
+			slots[base + 2] = counts.draws;
+			for (int i = 0; i < counts.wins.length; i++) {
+				slots[base + 3 + i] = counts.wins[i];
+			}
+			slots[base] = key ^ mix(counts.nodes, counts.wins, counts.draws);
+		}
+
+		private static long mix(long nodes, long[] wins, long draws) {
+			long mixed = nodes * DEPTH_MIX + draws;
+			for (long win : wins) {
+				mixed = Long.rotateLeft(mixed, 21) ^ (win * DEPTH_MIX);
+			}
+			return mixed;
+		}
+	}
+}
\ No newline at end of file
@@ -1,3 +1,5 @@
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Abstract class representing a player entity and associated methods and attributes.
  * 
@@ -17,6 +19,15 @@ public abstract class Player {
 		this.counter = new Counter();
 	}
 	
+	/**
+	 * Constructor setting a given counter symbol to player.
+	 * @param symbol
+	 * 		the player symbol
+	 */
+	public Player(char symbol) {
+		this.counter = new Counter(symbol);
+	}
+	
 	/**
 	 * Abstract method to ensure all player types define getNextMove.
 	 * @param board
@@ -25,4 +36,31 @@ public abstract class Player {
 	 * 		integer defining which column to place the counter.
 	 */
 	abstract int getNextMove(Board board);
+	
+	/**
+	 * Requests the next move without waiting for it, so one thread can drive many games.
+	 * Players without their own asynchronous moves answer on the calling thread.
+	 * @param board
+	 * 		the current state of the game board, which must not change until the move is answered
+	 * @param deadline
+	 * 		System.nanoTime by which the move is needed, or 0 for none
+	 * @return move
+	 * 		completes with the column to place the counter in. Cancelling it abandons the move.
+	 */
+	CompletableFuture<Integer> requestMove(Board board, long deadline) {
+		CompletableFuture<Integer> move = new CompletableFuture<Integer>();
+		try {
+			move.complete(getNextMove(board));
+		} catch (RuntimeException e) {
+			move.completeExceptionally(e);
+		}
+		return move;
+	}
+	
+	/**
+	 * Tells the player the game is over, so it can stop any work on moves it will not make.
+	 */
+	void endGame() {
+		// Do nothing - only players working between turns need to stop
+	}
 }
\ No newline at end of file
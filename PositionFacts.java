@@ -0,0 +1,91 @@
+/**
+ * Facts of a board position that hold whoever searches it, packed into one long.
+ *
+ * A position's winner, whether it is drawn and whether a player can complete a line with their
+ * next counter depend only on the counters on the board, not on the player to move or the
+ * player a search scores for. The robots of one game can therefore share them through a game
+ * cache even though they cannot share each other's scores. Whether a threat exists is only
+ * found when a search asks for it, so a packed value says whether it is known.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see GameCache.java
+ *
+ */
+public class PositionFacts {
+	//No facts known, which an empty slot also reads as
+	static final long UNKNOWN = 0;
+	private static final long KNOWN = 1;
+	private static final int WINNER_SHIFT = 1;
+	private static final long WINNER_MASK = 0x3L << WINNER_SHIFT;
+	private static final long DRAWN = 1L << 3;
+	private static final long THREAT_KNOWN = 1L << 4;
+	private static final long THREAT = 1L << 5;
+
+	/**
+	 * Finds the winner and draw state of a board, and its threat state if asked, adding to
+	 * what is already known.
+	 * @param board
+	 * 		the board to check
+	 * @param facts
+	 * 		the facts already known of the board, or UNKNOWN
+	 * @param threat
+	 * 		true to find whether a player can win with their next counter
+	 * @return facts
+	 * 		the known facts with those asked for added
+	 */
+	static long of(MinimaxBoard board, long facts, boolean threat) {
+		if (facts == UNKNOWN) {
+			facts = KNOWN | (board.checkDraw() ? DRAWN : 0);
+			//The last player in turn order with a line wins, as the evaluation has always scored it
+			for (int i = 0; i < Counter.playerSymbols.length; i++) {
+				if (board.checkWin(Counter.playerSymbols[i])) {
+					facts = (facts & ~WINNER_MASK) | (long) (i + 1) << WINNER_SHIFT;
+				}
+			}
+		}
+		if (threat && !isThreatKnown(facts)) {
+			facts |= THREAT_KNOWN | (board.hasThreat() ? THREAT : 0);
+		}
+		return facts;
+	}
+
+	/**
+	 * Checks whether the facts include the threat state.
+	 */
+	static boolean isThreatKnown(long facts) {
+		return (facts & THREAT_KNOWN) != 0;
+	}
+
+	/**
+	 * Checks whether a player can complete a line with their next counter.
+	 */
+	static boolean hasThreat(long facts) {
+		return (facts & THREAT) != 0;
+	}
+
+	/**
+	 * Checks whether the board is full.
+	 */
+	static boolean isDrawn(long facts) {
+		return (facts & DRAWN) != 0;
+	}
+
+	/**
+	 * Finds the player with a winning line.
+	 * @return winner
+	 * 		the winner's counter, or 0 if nobody has won
+	 */
+	static char winnerOf(long facts) {
+		int index = (int) ((facts & WINNER_MASK) >>> WINNER_SHIFT);
+		return (index > 0) ? Counter.playerSymbols[index - 1] : 0;
+	}
+
+	/**
+	 * Checks whether the game is over, drawn or won.
+	 */
+	static boolean isEnd(long facts) {
+		return (facts & (DRAWN | WINNER_MASK)) != 0;
+	}
+}
\ No newline at end of file
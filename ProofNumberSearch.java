@@ -0,0 +1,403 @@
+import java.util.Locale;
+
+/**
+ * Depth-first proof-number search proving whether one player can force a win.
+ *
+ * The target player's turns are OR nodes and every other player's turns are AND nodes, so a
+ * proof holds against any moves the other players make together, as in paranoid minimax, and a
+ * disproof means the others can stop the target winning. Every position's proof and disproof
+ * numbers are kept in a fixed size table of four-way buckets, so memory does not grow with the
+ * search: a full bucket evicts the entry with the least work below it, and once the table is
+ * mostly full the entries with the smallest subtrees are collected, solved or not. Entries lost
+ * this way only cost the work to find them again. The search stops at a node limit or deadline
+ * and reports the position unknown if it has neither proof nor disproof by then.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see Bot.java
+ *
+ */
+public class ProofNumberSearch {
+	public static final int PROVEN = 1;
+	public static final int DISPROVEN = -1;
+	public static final int UNKNOWN = 0;
+	//Proof or disproof number of a solved position, with room to add several without overflow
+	static final int INFINITE = Integer.MAX_VALUE / 8;
+	private static final int WAYS = 4;
+	//Fraction of slots in use at which the smallest subtrees are collected
+	private static final double COLLECT_LOAD = 0.75;
+	//Nodes between checks of the stop conditions
+	private static final int STOP_CHECK_INTERVAL = 256;
+	//Columns ordered from the centre outwards
+	private static final int[] COLUMN_ORDER = {4, 3, 5, 2, 6, 1, 7};
+	private static final long SEED = 2018;
+
+	private final long[] keys;
+	private final int[] proofs;
+	private final int[] disproofs;
+	//Nodes searched below each entry, 0 for an empty slot
+	private final int[] works;
+	private final int buckets;
+	private int stored;
+	private char target;
+	private long nodes;
+	private long nodeLimit;
+	private long deadline;
+	private boolean aborted;
+	private int provenColumn;
+	private int lastProof;
+	private int lastDisproof;
+	private long evictions;
+	private long collections;
+
+	/**
+	 * Main function to solve random positions from the command line.
+	 * @param args
+	 * 		optional N, number of positions and node limit per position
+	 */
+	public static void main(String[] args) {
+		int N = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+		int count = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		long limit = (args.length > 2) ? Long.parseLong(args[2]) : 1000000;
+		ProofNumberSearch solver = new ProofNumberSearch(1 << 20);
+		int[] outcomes = new int[3];
+		long totalNodes = 0;
+		long start = System.nanoTime();
+
+		for (Board board : SearchBenchmark.randomPositions(count, N, SEED + N, 2)) {
+			char player = Counter.playerSymbols[0];
+			int outcome = solver.solve(board, player, player, limit, 0);
+			outcomes[outcome + 1]++;
+			totalNodes += solver.getNodeCount();
+			System.out.println(String.format(Locale.ROOT, "%-10s %9d nodes%s", (outcome == PROVEN) ? "win"
+					: (outcome == DISPROVEN) ? "no win" : "unknown", solver.getNodeCount(),
+					(outcome == PROVEN) ? ", column " + solver.getProvenColumn() : ""));
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format(Locale.ROOT, "N = %d: %d forced wins, %d not, %d unknown; %.0f nodes/s, "
+				+ "%d evictions, %d collections", N, outcomes[2], outcomes[0], outcomes[1], totalNodes / seconds,
+				solver.getEvictions(), solver.getCollections()));
+	}
+
+	/**
+	 * Constructor allocates the table, which is all the memory the search keeps between nodes.
+	 * @param slots
+	 * 		the number of positions the table can hold, rounded up to a power of two
+	 */
+	public ProofNumberSearch(int slots) {
+		int size = TranspositionTable.slotCount(Math.max(slots, WAYS));
+		keys = new long[size];
+		proofs = new int[size];
+		disproofs = new int[size];
+		works = new int[size];
+		buckets = size / WAYS;
+	}
+
+	/**
+	 * Tries to prove that a player can force a win from a position, against every combination of
+	 * the other players' moves. Entries from earlier calls are kept, so positions reached again
+	 * later in the game are solved quickly.
+	 * @param board
+	 * 		the position to solve
+	 * @param toMove
+	 * 		the counter of the player whose turn it is
+	 * @param target
+	 * 		the counter of the player to prove a win for
+	 * @param nodeLimit
+	 * 		the most positions to search, or 0 for no limit
+	 * @param deadline
+	 * 		System.nanoTime at which to stop, or 0 for none
+	 * @return outcome
+	 * 		PROVEN if the player can force a win, DISPROVEN if not, or UNKNOWN if the search stopped first
+	 */
+	public int solve(Board board, char toMove, char target, long nodeLimit, long deadline) {
+		this.target = target;
+		this.nodeLimit = nodeLimit;
+		this.deadline = deadline;
+		nodes = 0;
+		aborted = false;
+		provenColumn = 0;
+
+		MinimaxBoard root = new MinimaxBoard(board);
+		if (root.checkWin(target)) {
+			return PROVEN;
+		}
+		if (root.endGame() || !root.getWindows().canWin(target)) {
+			return DISPROVEN;
+		}
+		try {
+			mid(root, toMove, key(root, toMove), INFINITE, INFINITE, true);
+		} catch (CloneNotSupportedException e) {
+			//End programme gracefully if exception is thrown - error in code
+			e.printStackTrace();
+			System.exit(0);
+		}
+		return (lastProof == 0) ? PROVEN : (lastDisproof == 0) ? DISPROVEN : UNKNOWN;
+	}
+
+	/**
+	 * Searches a position until its proof or disproof number reaches its threshold, always
+	 * expanding the child most likely to settle the position, then stores its numbers.
+	 * Leaves the position's numbers in lastProof and lastDisproof.
+	 */
+	private void mid(MinimaxBoard node, char toMove, long key, int proofThreshold, int disproofThreshold, boolean root)
+			throws CloneNotSupportedException {
+		nodes++;
+		long startNodes = nodes;
+		boolean or = (toMove == target);
+		char next = Counter.playerSymbols[(Counter.indexOf(toMove) + 1) % Counter.playerSymbols.length];
+
+		//Expand every column, scoring finished games directly and the rest from the table
+		MinimaxBoard[] children = new MinimaxBoard[Board.BOARD_WIDTH];
+		long[] childKeys = new long[Board.BOARD_WIDTH];
+		int[] columns = new int[Board.BOARD_WIDTH];
+		int[] childProofs = new int[Board.BOARD_WIDTH];
+		int[] childDisproofs = new int[Board.BOARD_WIDTH];
+		int count = 0;
+		for (int column : COLUMN_ORDER) {
+			MinimaxBoard child = createChild(node, toMove, column);
+			if (child == null) {
+				continue;
+			}
+			columns[count] = column;
+			children[count] = child;
+			childProofs[count] = 1;
+			childDisproofs[count] = 1;
+			if (child.checkWin(toMove)) {
+				childProofs[count] = (toMove == target) ? 0 : INFINITE;
+				childDisproofs[count] = (toMove == target) ? INFINITE : 0;
+				children[count] = null;
+			} else if (child.checkDraw() || !child.getWindows().canWin(target)) {
+				childProofs[count] = INFINITE;
+				childDisproofs[count] = 0;
+				children[count] = null;
+			} else {
+				childKeys[count] = key(child, next);
+				int slot = find(childKeys[count]);
+				if (slot >= 0) {
+					childProofs[count] = proofs[slot];
+					childDisproofs[count] = disproofs[slot];
+				}
+			}
+			count++;
+		}
+
+		int proof;
+		int disproof;
+		while (true) {
+			//OR nodes need one child proven and every child disproven, AND nodes the reverse
+			int best = 0;
+			int second = INFINITE;
+			long sum = 0;
+			int[] minimised = or ? childProofs : childDisproofs;
+			int[] summed = or ? childDisproofs : childProofs;
+			for (int i = 0; i < count; i++) {
+				sum += summed[i];
+				if (minimised[i] < minimised[best]) {
+					second = minimised[best];
+					best = i;
+				} else if (i != best && minimised[i] < second) {
+					second = minimised[i];
+				}
+			}
+			int least = minimised[best];
+			int total = (int) Math.min(sum, INFINITE);
+			proof = or ? least : total;
+			disproof = or ? total : least;
+			if (proof >= proofThreshold || disproof >= disproofThreshold || aborted || checkStop()) {
+				break;
+			}
+
+			//Search the best child until it is settled or no longer best
+			int childProofThreshold;
+			int childDisproofThreshold;
+			if (or) {
+				childProofThreshold = Math.min(proofThreshold, second + 1);
+				childDisproofThreshold = (int) Math.min((long) disproofThreshold - disproof + childDisproofs[best], INFINITE);
+			} else {
+				childDisproofThreshold = Math.min(disproofThreshold, second + 1);
+				childProofThreshold = (int) Math.min((long) proofThreshold - proof + childProofs[best], INFINITE);
+			}
+			mid(children[best], next, childKeys[best], childProofThreshold, childDisproofThreshold, false);
+			childProofs[best] = lastProof;
+			childDisproofs[best] = lastDisproof;
+		}
+
+		if (root && or && proof == 0) {
+			//Prefer an immediate win, then the proven column nearest the centre
+			for (int i = count - 1; i >= 0; i--) {
+				if (childProofs[i] == 0 && children[i] == null) {
+					provenColumn = columns[i];
+				}
+			}
+			for (int i = count - 1; i >= 0 && provenColumn == 0; i--) {
+				if (childProofs[i] == 0) {
+					provenColumn = columns[i];
+				}
+			}
+		}
+		store(key, proof, disproof, nodes - startNodes + 1);
+		lastProof = proof;
+		lastDisproof = disproof;
+	}
+
+	/**
+	 * Checks the time limit and node limit every few nodes.
+	 * @return aborted
+	 * 		true once the search must stop
+	 */
+	private boolean checkStop() {
+		if (!aborted && nodes % STOP_CHECK_INTERVAL == 0) {
+			aborted = (deadline != 0 && System.nanoTime() >= deadline) || (nodeLimit != 0 && nodes >= nodeLimit);
+		}
+		return aborted;
+	}
+
+	/**
+	 * Computes the table key of a position, kept apart for each target player.
+	 */
+	private long key(Board board, char toMove) {
+		return Zobrist.hash(board, toMove) ^ Zobrist.perspective(target);
+	}
+
+	/**
+	 * Finds the slot holding a position.
+	 * @return slot
+	 * 		the slot, or -1 if the position is not stored
+	 */
+	private int find(long key) {
+		int base = bucketOf(key);
+		for (int slot = base; slot < base + WAYS; slot++) {
+			if (works[slot] != 0 && keys[slot] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Stores the numbers of a position, replacing the entry with the least work in a full bucket.
+	 */
+	private void store(long key, int proof, int disproof, long work) {
+		int slot = find(key);
+		if (slot < 0) {
+			int base = bucketOf(key);
+			slot = base;
+			for (int i = base; i < base + WAYS; i++) {
+				if (works[i] < works[slot]) {
+					slot = i;
+				}
+			}
+			if (works[slot] == 0) {
+				stored++;
+			} else {
+				evictions++;
+			}
+		}
+		keys[slot] = key;
+		proofs[slot] = proof;
+		disproofs[slot] = disproof;
+		works[slot] = (int) Math.min(Math.max(work, 1), Integer.MAX_VALUE);
+		if (stored > works.length * COLLECT_LOAD) {
+			collect();
+		}
+	}
+
+	/**
+	 * Removes the entries with the smallest subtrees, about half the table.
+	 */
+	private void collect() {
+		//Count entries by the power of two of their work, then clear the smallest classes
+		int[] classes = new int[Integer.SIZE];
+		for (int work : works) {
+			if (work != 0) {
+				classes[31 - Integer.numberOfLeadingZeros(work)]++;
+			}
+		}
+		int limit = 0;
+		for (int removed = classes[0]; removed < stored / 2 && limit < classes.length - 1; removed += classes[++limit]) {
+			// Do nothing - find the smallest class that frees half the table
+		}
+		for (int slot = 0; slot < works.length; slot++) {
+			if (works[slot] != 0 && 31 - Integer.numberOfLeadingZeros(works[slot]) <= limit) {
+				works[slot] = 0;
+				stored--;
+			}
+		}
+		collections++;
+	}
+
+	private int bucketOf(long key) {
+		return (int) ((key ^ (key >>> 32)) & (buckets - 1)) * WAYS;
+	}
+
+	/**
+	 * Creates a clone of the board with the player counter placed in one column.
+	 * @return child
+	 * 		the new board, or null if the column is full
+	 */
+	private static MinimaxBoard createChild(MinimaxBoard parent, char player, int column) throws CloneNotSupportedException {
+		if (parent.getBoard()[0][column-1] != Board.BOARD_SPACE) {
+			return null;
+		}
+		char[][] newBoard = new char[Board.BOARD_HEIGHT][];
+		for (int j = 0; j < Board.BOARD_HEIGHT; j++) {
+			newBoard[j] = parent.getBoard()[j].clone();
+		}
+		parent.getWindows();
+		MinimaxBoard child = parent.clone();
+		child.setBoard(newBoard);
+		child.placeCounter(player, column);
+		return child;
+	}
+
+	/**
+	 * Accessor for a winning column of the last position proven with the target to move.
+	 * @return column
+	 * 		the column, or 0 if the last search did not prove a win with the target to move
+	 */
+	public int getProvenColumn() {
+		return provenColumn;
+	}
+
+	/**
+	 * Accessor for the number of positions searched by the last call.
+	 * @return nodes
+	 */
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Accessor for the number of positions in the table.
+	 * @return stored
+	 */
+	public int getStoredCount() {
+		return stored;
+	}
+
+	/**
+	 * Accessor for the heap memory of the table.
+	 * @return bytes
+	 */
+	public long getBytes() {
+		return (long) works.length * (Long.BYTES + 3 * Integer.BYTES);
+	}
+
+	/**
+	 * Accessor for the number of entries replaced in full buckets.
+	 * @return evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Accessor for the number of times the smallest subtrees were collected.
+	 * @return collections
+	 */
+	public long getCollections() {
+		return collections;
+	}
+}
\ No newline at end of file
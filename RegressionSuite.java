@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Deterministic regression suite checking the robot search against a fixed corpus of positions.
+ *
+ * Each corpus position records the best column, score and exact number of nodes the search
+ * visits at a fixed depth. The search is single threaded and starts with an empty table for
+ * every position, so the node count only changes when the search itself changes, on any
+ * hardware. A change in node count with the same column and score is an efficiency change,
+ * while a different column or score is a change in play.
+ *
+ * Run with "record" to rebuild the corpus and its expected results after an intended change.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see BotSearch.java
+ *
+ */
+public class RegressionSuite {
+	static final String CORPUS = "regression-corpus.txt";
+	private static final long SEED = 2018;
+	private static final int POSITIONS_PER_PHASE = 2;
+	//Counter counts of the game phases - opening, middle game and late game
+	private static final String[] PHASES = {"opening", "middle", "late"};
+	private static final int[][] PHASE_COUNTERS = {{0, 6}, {12, 21}, {24, 36}};
+
+	/**
+	 * Main function to run or record the suite from the command line.
+	 * @param args
+	 * 		optional "run" or "record", then optional corpus file
+	 * @throws IOException
+	 * 		if the corpus cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		String mode = (args.length > 0) ? args[0] : "run";
+		Path corpus = Paths.get((args.length > 1) ? args[1] : CORPUS);
+
+		if (mode.equals("record")) {
+			record(corpus);
+		} else if (mode.equals("run")) {
+			//Non-zero exit status lets build scripts fail on any difference
+			System.exit(run(corpus) ? 0 : 1);
+		} else {
+			System.out.println("Usage: RegressionSuite [run|record] [corpus]");
+		}
+	}
+
+	/**
+	 * Searches every corpus position and reports its node count and time against the baseline.
+	 * @param corpus
+	 * 		the corpus file
+	 * @return passed
+	 * 		true if every position matched its expected column, score and node count
+	 * @throws IOException
+	 * 		if the corpus cannot be read
+	 */
+	static boolean run(Path corpus) throws IOException {
+		long nodes = 0;
+		long baselineNodes = 0;
+		long time = 0;
+		int changed = 0;
+		int positions = 0;
+
+		System.out.println(String.format(Locale.ROOT, "%-12s %2s %-8s %5s %10s %10s %8s %8s  %s",
+				"position", "N", "phase", "depth", "nodes", "baseline", "change", "ms", "result"));
+		for (String line : Files.readAllLines(corpus, StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.trim().split("\\s+");
+			String id = fields[0];
+			int N = Integer.parseInt(fields[1]);
+			String phase = fields[2];
+			int depth = Integer.parseInt(fields[3]);
+			Board board = parseBoard(fields[4], N);
+			int expectedColumn = Integer.parseInt(fields[5]);
+			int expectedScore = Integer.parseInt(fields[6]);
+			long expectedNodes = Long.parseLong(fields[7]);
+
+			BotSearch search = createSearch(board);
+			long start = System.nanoTime();
+			int column = search.getBestColumnMTDF(board, depth);
+			long elapsed = System.nanoTime() - start;
+
+			String result = "ok";
+			if (column != expectedColumn || search.getBestScore() != expectedScore) {
+				result = "PLAY CHANGED: column " + column + " score " + search.getBestScore();
+			} else if (search.getNodeCount() != expectedNodes) {
+				result = (search.getNodeCount() > expectedNodes) ? "MORE NODES" : "fewer nodes";
+			}
+			if (!result.equals("ok")) {
+				changed++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%-12s %2d %-8s %5d %10d %10d %7.1f%% %8.1f  %s",
+					id, N, phase, depth, search.getNodeCount(), expectedNodes,
+					percentChange(search.getNodeCount(), expectedNodes), elapsed / 1e6, result));
+
+			nodes += search.getNodeCount();
+			baselineNodes += expectedNodes;
+			time += elapsed;
+			positions++;
+		}
+
+		System.out.println(String.format(Locale.ROOT, "Total: %d positions, %d nodes against %d (%+.1f%%), %.1f ms",
+				positions, nodes, baselineNodes, percentChange(nodes, baselineNodes), time / 1e6));
+		System.out.println((changed == 0) ? "All positions match the baseline" : changed + " positions differ from the baseline");
+		return changed == 0;
+	}
+
+	/**
+	 * Builds the corpus from seeded random games and writes it with the current search results.
+	 * @param corpus
+	 * 		the corpus file to write
+	 * @throws IOException
+	 * 		if the corpus cannot be written
+	 */
+	static void record(Path corpus) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		lines.add("# Regression corpus - regenerate with: java RegressionSuite record");
+		lines.add("# position N phase depth board(top row first, . for space) column score nodes");
+
+		Set<String> recorded = new HashSet<String>();
+		for (int N = 2; N <= 7; N++) {
+			Board[] pool = SearchBenchmark.randomPositions(2000, N, SEED + N, 12);
+			for (int phase = 0; phase < PHASES.length; phase++) {
+				int found = 0;
+				for (int i = 0; i < pool.length && found < POSITIONS_PER_PHASE; i++) {
+					int counters = counters(pool[i]);
+					if (counters >= PHASE_COUNTERS[phase][0] && counters <= PHASE_COUNTERS[phase][1]
+							&& recorded.add(N + formatBoard(pool[i]))) {
+						found++;
+						BotSearch search = createSearch(pool[i]);
+						int column = search.getBestColumnMTDF(pool[i], Bot.DEPTH);
+						lines.add(String.format(Locale.ROOT, "n%d-%s-%d %d %s %d %s %d %d %d", N, PHASES[phase], found,
+								N, PHASES[phase], Bot.DEPTH, formatBoard(pool[i]), column, search.getBestScore(),
+								search.getNodeCount()));
+					}
+				}
+			}
+		}
+		Files.write(corpus, lines, StandardCharsets.UTF_8);
+		System.out.println("Recorded " + (lines.size() - 2) + " positions to " + corpus);
+	}
+
+	/**
+	 * Creates a search for the player to move with the robot player's settings and an empty table.
+	 * @param board
+	 * 		the position to search
+	 * @return search
+	 */
+	private static BotSearch createSearch(Board board) {
+		char toMove = Counter.playerSymbols[counters(board) % Counter.playerSymbols.length];
+		BotSearch search = new BotSearch(toMove);
+		Bot.configure(search);
+		return search;
+	}
+
+	/**
+	 * Writes a board as its rows from the top, separated by '/', with '.' for spaces.
+	 * @param board
+	 * 		the board to write
+	 * @return text
+	 */
+	static String formatBoard(Board board) {
+		StringBuilder text = new StringBuilder();
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			if (row > 0) {
+				text.append('/');
+			}
+			for (char square : board.getBoard()[row]) {
+				text.append((square == Board.BOARD_SPACE) ? '.' : square);
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Reads a board written by formatBoard.
+	 * @param text
+	 * 		the board text
+	 * @param N
+	 * 		the game win amount
+	 * @return board
+	 */
+	static Board parseBoard(String text, int N) {
+		String[] rows = text.split("/");
+		if (rows.length != Board.BOARD_HEIGHT) {
+			throw new IllegalArgumentException("Board needs " + Board.BOARD_HEIGHT + " rows: " + text);
+		}
+		char[][] squares = new char[Board.BOARD_HEIGHT][Board.BOARD_WIDTH];
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			if (rows[row].length() != Board.BOARD_WIDTH) {
+				throw new IllegalArgumentException("Board rows need " + Board.BOARD_WIDTH + " squares: " + text);
+			}
+			for (int column = 0; column < Board.BOARD_WIDTH; column++) {
+				char square = rows[row].charAt(column);
+				squares[row][column] = (square == '.') ? Board.BOARD_SPACE : square;
+			}
+		}
+		Board board = new Board(N);
+		board.setBoard(squares);
+		return board;
+	}
+
+	/**
+	 * Counts the counters on a board.
+	 */
+	private static int counters(Board board) {
+		int count = 0;
+		for (char[] row : board.getBoard()) {
+			for (char square : row) {
+				if (square != Board.BOARD_SPACE) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Percentage change of a value from its baseline.
+	 */
+	private static double percentChange(long value, long baseline) {
+		return (baseline > 0) ? 100.0 * (value - baseline) / baseline : 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,454 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Command line benchmark comparing the work done by the bot search algorithms.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see BotSearch.java
+ *
+ */
+public class SearchBenchmark {
+	private static final int POSITIONS = 20;
+	//Robot games played to compare sharing a search cache
+	private static final int GAMES = 6;
+	private static final long SEED = 2018;
+	//Counters on the board for a position to count as late in the game
+	private static final int LATE_COUNTERS = 24;
+
+	/**
+	 * Searches a set of random positions with each algorithm at equal depth and prints the
+	 * total nodes and time of each.
+	 * @param args
+	 * 		optional search depth and win amount N
+	 */
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+		int N = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		Board[] positions = randomPositions(POSITIONS, N, SEED);
+		char player = Counter.playerSymbols[0];
+
+		String[] names = {"minimax", "alpha-beta", "aspiration", "mtd(f)"};
+		long[] nodes = new long[names.length];
+		long[] times = new long[names.length];
+		int mismatches = 0;
+
+		for (Board position : positions) {
+			int[] scores = new int[names.length];
+			for (int algorithm = 0; algorithm < names.length; algorithm++) {
+				//Fresh search object per run so no algorithm benefits from another's table
+				BotSearch search = new BotSearch(player);
+				long start = System.nanoTime();
+				switch (algorithm) {
+				case 0:
+					search.getBestColumn(position, depth);
+					break;
+				case 1:
+					search.getBestColumnAlphaBeta(position, depth);
+					break;
+				case 2:
+					search.getBestColumnAspiration(position, depth);
+					break;
+				default:
+					search.getBestColumnMTDF(position, depth);
+				}
+				times[algorithm] += System.nanoTime() - start;
+				nodes[algorithm] += search.getNodeCount();
+				scores[algorithm] = search.getBestScore();
+			}
+			//Windowed searches must agree with the full window score
+			if (scores[2] != scores[1] || scores[3] != scores[1]) {
+				mismatches++;
+			}
+		}
+
+		System.out.println("Depth " + depth + ", N = " + N + ", " + POSITIONS + " positions");
+		for (int algorithm = 0; algorithm < names.length; algorithm++) {
+			System.out.printf("%-12s %12d nodes %8d ms%n", names[algorithm], nodes[algorithm], times[algorithm] / 1000000);
+		}
+		System.out.println("Score mismatches against full window: " + mismatches);
+
+		long millis = (args.length > 2) ? Long.parseLong(args[2]) : 100;
+		compareSelective(positions, player, millis);
+		compareBatch(positions, player, depth);
+		compareWindows(N, player, depth);
+		compareMultiPV(positions, player, depth);
+		compareGameCache(N, depth);
+	}
+
+	/**
+	 * Plays robot games with a table per robot, then replays the same moves with a table per robot
+	 * and with every robot of a game sharing one cache, reporting how much search time and how many
+	 * nodes sharing saves in each round of moves. The first play only decides the moves, so neither replay pays for compiling
+	 * the search, and the replays alternate which goes first.
+	 * @param N
+	 * 		the game win amount
+	 * @param depth
+	 * 		depth of turns to search
+	 */
+	static void compareGameCache(int N, int depth) {
+		String[] names = {"separate", "shared"};
+		Board[] openings = randomPositions(GAMES, N, SEED, 1);
+		long[] nodes = new long[names.length];
+		long[] times = new long[names.length];
+		long rounds = 0;
+		long factHits = 0;
+		long crossFactHits = 0;
+		long factProbes = 0;
+		int changed = 0;
+
+		for (int game = 0; game < openings.length; game++) {
+			List<Integer> moves = new ArrayList<Integer>();
+			playCacheGame(openings[game], moves, null, depth);
+			for (int run = 0; run < names.length; run++) {
+				int mode = (run + game) % names.length;
+				GameCache cache = (mode == 1) ? new GameCache(BotSearch.TABLE_SLOTS) : null;
+				long[] result = playCacheGame(openings[game], moves, cache, depth);
+				nodes[mode] += result[0];
+				times[mode] += result[1];
+				changed += (int) result[2];
+				if (cache != null) {
+					factHits += cache.getFactHits();
+					crossFactHits += cache.getCrossFactHits();
+					factProbes += cache.getFactProbes();
+				}
+			}
+			rounds += (moves.size() + Counter.playerSymbols.length - 1) / Counter.playerSymbols.length;
+		}
+		for (int mode = 0; mode < names.length; mode++) {
+			System.out.printf("%-12s %12d nodes %8d ms %10.0f nodes/round %8.2f ms/round%n", names[mode], nodes[mode],
+					times[mode] / 1000000, (double) nodes[mode] / rounds, times[mode] / 1e6 / rounds);
+		}
+		double separate = times[0] / 1e6 / rounds;
+		double shared = times[1] / 1e6 / rounds;
+		System.out.printf("Shared cache against separate caches: %.2f ms less search time per round (%.1f%%), "
+				+ "%.1f%% fewer nodes%n", separate - shared, 100 * (separate - shared) / separate,
+				100.0 * (nodes[0] - nodes[1]) / Math.max(nodes[0], 1));
+		System.out.printf("Game cache: %d games, %d rounds, moves changed %d%n", openings.length, rounds, changed);
+		System.out.printf("Position facts: hit rate %.1f%%, found by another robot %.1f%%%n",
+				100.0 * factHits / Math.max(factProbes, 1), 100.0 * crossFactHits / Math.max(factProbes, 1));
+	}
+
+	/**
+	 * Plays one robot game from an opening, with a table per robot or one cache for all of them.
+	 * @param opening
+	 * 		the position the game starts from
+	 * @param moves
+	 * 		the moves to replay, or an empty list to fill with the moves the robots choose
+	 * @param cache
+	 * 		the cache every robot shares, or null for a table per robot
+	 * @param depth
+	 * 		depth of turns to search
+	 * @return result
+	 * 		the nodes searched, the search time in nanoseconds and the number of replayed moves the
+	 * 		robots chose differently
+	 */
+	private static long[] playCacheGame(Board opening, List<Integer> moves, GameCache cache, int depth) {
+		Board board = new Board(opening.getGameWinAmount());
+		board.setBoard(copy(opening.getBoard()));
+		boolean replay = !moves.isEmpty();
+		BotSearch[] searches = new BotSearch[Counter.playerSymbols.length];
+		for (int seat = 0; seat < searches.length; seat++) {
+			searches[seat] = new BotSearch(Counter.playerSymbols[seat]);
+			Bot.configure(searches[seat]);
+			if (cache != null) {
+				searches[seat].setTranspositionTable(cache);
+			}
+		}
+		long[] result = new long[3];
+
+		//A game played first decides the moves, so a replay searches the same positions
+		for (int move = 0; replay ? move < moves.size() : !board.checkDraw(); move++) {
+			int seat = move % searches.length;
+			char symbol = Counter.playerSymbols[seat];
+			long start = System.nanoTime();
+			int column = searches[seat].getBestColumnMTDF(board, depth);
+			result[1] += System.nanoTime() - start;
+			result[0] += searches[seat].getNodeCount();
+
+			if (!replay) {
+				while (board.getBoard()[0][column-1] != Board.BOARD_SPACE) {
+					column = column % Board.BOARD_WIDTH + 1;
+				}
+				moves.add(column);
+			} else if (column != moves.get(move)) {
+				result[2]++;
+			}
+			board.placeCounter(symbol, moves.get(move));
+			if (!replay && board.checkWin(symbol)) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Copies the squares of a board.
+	 */
+	private static char[][] copy(char[][] squares) {
+		char[][] copy = new char[squares.length][];
+		for (int row = 0; row < squares.length; row++) {
+			copy[row] = squares[row].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Compares scoring every column in one multi-PV search against a separate search per column,
+	 * checking exact scores match, bounds hold and the best multi-PV score matches the single best
+	 * column search.
+	 * @param positions
+	 * 		the boards to search
+	 * @param player
+	 * 		the counter of the player to move
+	 * @param depth
+	 * 		depth of turns to search
+	 */
+	static void compareMultiPV(Board[] positions, char player, int depth) {
+		long sharedNodes = 0;
+		long sharedTime = 0;
+		long separateNodes = 0;
+		long separateTime = 0;
+		int mismatches = 0;
+
+		for (Board position : positions) {
+			BotSearch search = new BotSearch(player);
+			long start = System.nanoTime();
+			List<ColumnAnalysis> analyses = search.analyseColumns(position, depth);
+			sharedTime += System.nanoTime() - start;
+			sharedNodes += search.getNodeCount();
+
+			for (ColumnAnalysis analysis : analyses) {
+				BotSearch single = new BotSearch(player);
+				start = System.nanoTime();
+				ColumnAnalysis separate = single.analyseColumn(position, depth, analysis.getColumn());
+				separateTime += System.nanoTime() - start;
+				separateNodes += single.getNodeCount();
+				//A column no better than the best only has to stay within its bound
+				if (analysis.isExact() ? separate.getScore() != analysis.getScore() : separate.getScore() > analysis.getScore()) {
+					mismatches++;
+				}
+			}
+
+			BotSearch best = new BotSearch(player);
+			best.getBestColumnMTDF(position, depth);
+			if (best.getBestScore() != analyses.get(0).getScore()) {
+				mismatches++;
+			}
+		}
+		System.out.println("Multi-PV analysis of every column");
+		System.out.printf("%-12s %12d nodes %8d ms%n", "shared", sharedNodes, sharedTime / 1000000);
+		System.out.printf("%-12s %12d nodes %8d ms%n", "separate", separateNodes, separateTime / 1000000);
+		System.out.println("Multi-PV score mismatches: " + mismatches);
+	}
+
+	/**
+	 * Times fixed depth searches of late positions with and without cutting the search where
+	 * players can no longer complete a line.
+	 * @param N
+	 * 		the game win amount
+	 * @param player
+	 * 		the counter of the player to move
+	 * @param depth
+	 * 		depth of turns to search
+	 */
+	static void compareWindows(int N, char player, int depth) {
+		Board[] positions = new Board[POSITIONS];
+		int found = 0;
+		for (Board board : randomPositions(POSITIONS * 20, N, SEED, 12)) {
+			if (found < POSITIONS && counters(board) >= LATE_COUNTERS) {
+				positions[found++] = board;
+			}
+		}
+		positions = Arrays.copyOf(positions, found);
+		int dead = 0;
+		for (Board position : positions) {
+			if (LineWindows.of(position).isDead()) {
+				dead++;
+			}
+		}
+		System.out.println("Late positions with at least " + LATE_COUNTERS + " counters: " + found + ", no player can win: " + dead);
+
+		String[] names = {"full", "windows"};
+		int[] columns = new int[found];
+		int changed = 0;
+		for (int mode = 0; mode < names.length; mode++) {
+			long nodes = 0;
+			long time = 0;
+			for (int i = 0; i < found; i++) {
+				BotSearch search = new BotSearch(player);
+				search.setWindowCutoffs(mode == 1);
+				long start = System.nanoTime();
+				int column = search.getBestColumnMTDF(positions[i], depth);
+				time += System.nanoTime() - start;
+				nodes += search.getNodeCount();
+				if (mode == 0) {
+					columns[i] = column;
+				} else if (column != columns[i]) {
+					changed++;
+				}
+			}
+			System.out.printf("%-12s %12d nodes %8d ms%n", names[mode], nodes, time / 1000000);
+		}
+		System.out.println("Moves changed by window cutoffs: " + changed);
+	}
+
+	/**
+	 * Counts the counters on a board.
+	 */
+	private static int counters(Board board) {
+		int count = 0;
+		for (char[] row : board.getBoard()) {
+			for (char square : row) {
+				if (square != Board.BOARD_SPACE) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks batched leaf scores match the single board heuristic, then times fixed depth
+	 * searches with and without batched leaves.
+	 * @param positions
+	 * 		the boards to search
+	 * @param player
+	 * 		the counter of the player to move
+	 * @param depth
+	 * 		depth of turns to search
+	 */
+	static void compareBatch(Board[] positions, char player, int depth) {
+		BatchEvaluator batch = new BatchEvaluator();
+		int[] scores = new int[BatchEvaluator.LANES];
+		int checked = 0;
+		int mismatches = 0;
+
+		//Compare heuristic scores for every win amount on positions from all game phases
+		for (int N = 2; N <= 7; N++) {
+			Board[] boards = randomPositions(BatchEvaluator.LANES * 50, N, SEED + N, 12);
+			for (int start = 0; start < boards.length; start += BatchEvaluator.LANES) {
+				batch.clear();
+				for (int lane = 0; lane < BatchEvaluator.LANES; lane++) {
+					batch.add(boards[start + lane], player);
+				}
+				batch.evaluate(N, SearchParameters.DEFAULTS.getStreakBonus(), scores);
+				for (int lane = 0; lane < BatchEvaluator.LANES; lane++) {
+					checked++;
+					if (scores[lane] != new MinimaxBoard(boards[start + lane]).findStreak(player)) {
+						mismatches++;
+					}
+				}
+			}
+		}
+		System.out.println("Batched leaf scores checked: " + checked + ", mismatches: " + mismatches);
+
+		String[] names = {"single", "batched"};
+		int[] results = new int[names.length];
+		for (int mode = 0; mode < names.length; mode++) {
+			long nodes = 0;
+			long time = 0;
+			for (Board position : positions) {
+				BotSearch search = new BotSearch(player);
+				search.setBatchLeaves(mode == 1);
+				long start = System.nanoTime();
+				results[mode] = results[mode] * 31 + search.getBestColumnMTDF(position, depth);
+				results[mode] = results[mode] * 31 + search.getBestScore();
+				time += System.nanoTime() - start;
+				nodes += search.getNodeCount();
+			}
+			System.out.printf("%-12s %12d nodes %8d ms%n", names[mode], nodes, time / 1000000);
+		}
+		System.out.println("Batched search results " + (results[0] == results[1] ? "match" : "DIFFER"));
+	}
+
+	/**
+	 * Runs timed searches with and without late move reductions and threat extensions, printing
+	 * the average depth reached and total nodes of each.
+	 * @param positions
+	 * 		the boards to search
+	 * @param player
+	 * 		the counter of the player to move
+	 * @param millis
+	 * 		time allowed for each search
+	 */
+	static void compareSelective(Board[] positions, char player, long millis) {
+		String[] names = {"fixed-depth", "selective"};
+		System.out.println("Equal time searches of " + millis + " ms");
+
+		for (int mode = 0; mode < names.length; mode++) {
+			long nodes = 0;
+			int depth = 0;
+			for (Board position : positions) {
+				BotSearch search = new BotSearch(player);
+				if (mode == 1) {
+					search.setLateMoveReductions(Bot.FULL_DEPTH_MOVES, Bot.REDUCTION_PLIES);
+					search.setThreatExtensions(Bot.EXTENSION_PLIES, Bot.MAX_EXTENSIONS);
+				}
+				search.getBestColumnTimed(position, millis);
+				nodes += search.getNodeCount();
+				depth += search.getDepthReached();
+			}
+			System.out.printf("%-12s %12d nodes %8.2f average depth%n", names[mode], nodes, (double) depth / positions.length);
+		}
+	}
+
+	/**
+	 * Creates positions by playing random moves from an empty board, skipping finished games.
+	 * @param count
+	 * 		the number of positions to create
+	 * @param N
+	 * 		the game win amount
+	 * @param seed
+	 * 		seed for the random moves, so the same positions are produced each run
+	 * @return positions
+	 * 		boards with the first player to move
+	 */
+	static Board[] randomPositions(int count, int N, long seed) {
+		return randomPositions(count, N, seed, 4);
+	}
+
+	/**
+	 * Creates positions by playing up to the given number of random rounds from an empty board.
+	 * @param count
+	 * 		the number of positions to create
+	 * @param N
+	 * 		the game win amount
+	 * @param seed
+	 * 		seed for the random moves, so the same positions are produced each run
+	 * @param maxRounds
+	 * 		the most rounds of moves to play
+	 * @return positions
+	 * 		boards with the first player to move
+	 */
+	static Board[] randomPositions(int count, int N, long seed, int maxRounds) {
+		Random random = new Random(seed);
+		Board[] positions = new Board[count];
+		int found = 0;
+
+		while (found < count) {
+			Board board = new Board(N);
+			int rounds = random.nextInt(maxRounds + 1);
+			boolean finished = false;
+
+			//Play whole rounds so the first player is always to move
+			for (int move = 0; move < rounds * Counter.playerSymbols.length && !finished; move++) {
+				char symbol = Counter.playerSymbols[move % Counter.playerSymbols.length];
+				int column = random.nextInt(Board.BOARD_WIDTH) + 1;
+				if (board.placeCounter(symbol, column)) {
+					finished = board.checkWin(symbol) || board.checkDraw();
+				} else {
+					move--;
+				}
+			}
+			if (!finished) {
+				positions[found++] = board;
+			}
+		}
+		return positions;
+	}
+}
\ No newline at end of file
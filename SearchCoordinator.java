@@ -0,0 +1,498 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits a robot's search across worker processes on the same machine.
+ *
+ * Every position two plies below the root - each of the calling player's columns followed by
+ * each reply of the next player - is searched by a SearchWorker over a localhost socket, each
+ * worker in its own JVM with its own heap. The scores are merged back up the two plies by
+ * paranoid minimax with the usual column weighting. A worker that fails or takes longer than
+ * the timeout is dropped and its position sent to another worker, and positions left when every
+ * worker has gone are searched locally, so a search always completes.
+ * The subtrees are searched with full windows, so they cannot cut each other off as in a single
+ * alpha-beta search, and more nodes are searched in total.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchWorker.java
+ *
+ */
+public class SearchCoordinator implements AutoCloseable {
+	private static final long SEED = 2018;
+	static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+	private static final long POLL_MILLIS = 50;
+
+	private final List<WorkerLink> workers = new ArrayList<WorkerLink>();
+	private final long timeoutMillis;
+	private final BotSearch[] local = new BotSearch[Counter.playerSymbols.length];
+	private final AtomicInteger live = new AtomicInteger();
+	private final AtomicLong nodes = new AtomicLong();
+	private final AtomicInteger redispatches = new AtomicInteger();
+	private int bestColumn;
+	private int bestScore;
+	private int jobs;
+
+	/**
+	 * Main function to report scaling efficiency from the command line.
+	 * @param args
+	 * 		optional most workers, depth, N and number of positions
+	 * @throws IOException
+	 * 		if the workers cannot be started
+	 */
+	public static void main(String[] args) throws IOException {
+		int maxWorkers = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 9;
+		int N = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+		int count = (args.length > 3) ? Integer.parseInt(args[3]) : 4;
+		Board[] positions = SearchBenchmark.randomPositions(count, N, SEED + N, 3);
+		char player = Counter.playerSymbols[0];
+
+		//One process searching normally, for comparison
+		int[] columns = new int[positions.length];
+		BotSearch single = new BotSearch(player);
+		Bot.configure(single);
+		long singleNodes = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < positions.length; i++) {
+			columns[i] = single.getBestColumnMTDF(positions[i], depth);
+			singleNodes += single.getNodeCount();
+		}
+		double singleSeconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format(Locale.ROOT, "N = %d, depth %d, %d positions, %d processors", N, depth,
+				positions.length, Runtime.getRuntime().availableProcessors()));
+		System.out.println(String.format(Locale.ROOT, "%-8s %9s %12s %8s %10s %7s", "workers", "seconds", "nodes",
+				"speedup", "efficiency", "agree"));
+		System.out.println(String.format(Locale.ROOT, "%-8s %9.2f %12d", "single", singleSeconds, singleNodes));
+
+		double baseSeconds = 0;
+		for (int workerCount = 1; workerCount <= maxWorkers; workerCount++) {
+			try (SearchCoordinator coordinator = launch(workerCount, DEFAULT_TIMEOUT_MILLIS)) {
+				//Warm up the workers' compilers before timing
+				coordinator.getBestColumn(positions[0], player, Math.min(depth, 6));
+				long splitNodes = 0;
+				int agree = 0;
+				start = System.nanoTime();
+				for (int i = 0; i < positions.length; i++) {
+					agree += (coordinator.getBestColumn(positions[i], player, depth) == columns[i]) ? 1 : 0;
+					splitNodes += coordinator.getNodeCount();
+				}
+				double seconds = (System.nanoTime() - start) / 1e9;
+				baseSeconds = (workerCount == 1) ? seconds : baseSeconds;
+				System.out.println(String.format(Locale.ROOT, "%-8d %9.2f %12d %7.2fx %9.0f%% %4d/%d", workerCount,
+						seconds, splitNodes, baseSeconds / seconds, 100 * baseSeconds / (seconds * workerCount), agree,
+						positions.length));
+			}
+		}
+
+		//Kill a worker part way through a search to show its positions are sent elsewhere
+		if (maxWorkers >= 2) {
+			try (SearchCoordinator coordinator = launch(maxWorkers, DEFAULT_TIMEOUT_MILLIS)) {
+				Process victim = coordinator.workers.get(0).process;
+				new Thread(() -> {
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						// Do nothing - kill the worker early
+					}
+					victim.destroyForcibly();
+				}).start();
+				int column = coordinator.getBestColumn(positions[0], player, depth);
+				System.out.println("Worker killed during search: " + coordinator.getRedispatches() + " positions re-sent, "
+						+ "column " + column + ((column == columns[0]) ? " agrees" : " differs from " + columns[0]));
+			}
+		}
+	}
+
+	/**
+	 * Starts worker processes on this machine and connects to them.
+	 * @param count
+	 * 		the number of workers
+	 * @param timeoutMillis
+	 * 		longest wait for one position before its worker is dropped
+	 * @return coordinator
+	 * 		connected to the started workers, which stop when it is closed
+	 * @throws IOException
+	 * 		if a worker cannot be started or connected to
+	 */
+	public static SearchCoordinator launch(int count, long timeoutMillis) throws IOException {
+		SearchCoordinator coordinator = new SearchCoordinator(timeoutMillis);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		try {
+			for (int i = 0; i < count; i++) {
+				Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "SearchWorker", "0",
+						"--attached").redirectError(ProcessBuilder.Redirect.INHERIT).start();
+				try {
+					int port = SearchWorker.readPort(process.getInputStream());
+					coordinator.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), process);
+				} catch (IOException e) {
+					process.destroyForcibly();
+					throw e;
+				}
+			}
+		} catch (IOException e) {
+			coordinator.close();
+			throw e;
+		}
+		return coordinator;
+	}
+
+	/**
+	 * Constructor creates a coordinator with no workers, which searches locally until workers
+	 * are connected.
+	 * @param timeoutMillis
+	 * 		longest wait for one position before its worker is dropped
+	 */
+	public SearchCoordinator(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Connects to a worker already listening on this machine.
+	 * @param address
+	 * 		the worker's address
+	 * @throws IOException
+	 * 		if the worker cannot be reached
+	 */
+	public void connect(InetSocketAddress address) throws IOException {
+		connect(address, null);
+	}
+
+	private void connect(InetSocketAddress address, Process process) throws IOException {
+		Socket socket = new Socket();
+		socket.connect(address, (int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+		socket.setTcpNoDelay(true);
+		socket.setSoTimeout((int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+		workers.add(new WorkerLink(socket, process));
+		live.incrementAndGet();
+	}
+
+	/**
+	 * Finds the best column for a player by searching the positions two plies down on the
+	 * workers.
+	 * @param board
+	 * 		the current state of the game board
+	 * @param player
+	 * 		the counter of the player to move, whose score is maximised
+	 * @param depth
+	 * 		depth of turns to search
+	 * @return bestColumn
+	 * 		the column leading to the highest scoring board
+	 */
+	public int getBestColumn(Board board, char player, int depth) {
+		nodes.set(0);
+		redispatches.set(0);
+		BotSearch search = localSearch(player);
+		if (depth < 3) {
+			//Too shallow to be worth sending anywhere
+			bestColumn = search.getBestColumnMTDF(board, depth);
+			bestScore = search.getBestScore();
+			nodes.set(search.getNodeCount());
+			jobs = 0;
+			return bestColumn;
+		}
+
+		//Split two plies down, scoring finished games here
+		char next = nextPlayer(player);
+		char third = nextPlayer(next);
+		Job[][] split = new Job[Board.BOARD_WIDTH + 1][];
+		List<Job> queued = new ArrayList<Job>();
+		for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+			Board child = afterMove(board, player, column);
+			if (child == null) {
+				continue;
+			}
+			if (child.checkWin(player) || child.checkDraw()) {
+				split[column] = new Job[] {new Job(queued.size(), child, player, next, 0)};
+				split[column][0].score = search.scorePosition(child, next, 0);
+				continue;
+			}
+			split[column] = new Job[Board.BOARD_WIDTH + 1];
+			for (int reply = 1; reply <= Board.BOARD_WIDTH; reply++) {
+				Board grandchild = afterMove(child, next, reply);
+				if (grandchild == null) {
+					continue;
+				}
+				Job job = new Job(queued.size(), grandchild, player, third, depth - 2);
+				split[column][reply] = job;
+				if (grandchild.checkWin(next) || grandchild.checkDraw()) {
+					job.score = search.scorePosition(grandchild, third, 0);
+				} else {
+					queued.add(job);
+				}
+			}
+		}
+		jobs = queued.size();
+		run(queued);
+
+		//Merge - the player takes the best column, the next player the worst reply for them
+		SearchParameters weights = search.getParameters();
+		bestScore = -BotSearch.INFINITY;
+		bestColumn = 0;
+		for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+			if (split[column] == null) {
+				continue;
+			}
+			int value;
+			if (split[column].length == 1) {
+				value = split[column][0].score;
+			} else {
+				value = BotSearch.INFINITY;
+				for (int reply = 1; reply <= Board.BOARD_WIDTH; reply++) {
+					if (split[column][reply] != null) {
+						value = Math.min(value, split[column][reply].score + weights.getColumnWeight(reply));
+					}
+				}
+			}
+			value += weights.getColumnWeight(column);
+			if (value > bestScore) {
+				bestScore = value;
+				bestColumn = column;
+			}
+		}
+		return bestColumn;
+	}
+
+	/**
+	 * Searches the positions on the workers, re-sending those of failed workers, and searches any
+	 * left once no worker remains locally.
+	 */
+	private void run(List<Job> queued) {
+		BlockingQueue<Job> pending = new LinkedBlockingQueue<Job>(queued);
+		CountDownLatch done = new CountDownLatch(queued.size());
+		List<Thread> senders = new ArrayList<Thread>();
+		for (WorkerLink worker : workers) {
+			if (!worker.failed) {
+				Thread sender = new Thread(() -> send(worker, pending, done), "search-sender");
+				sender.setDaemon(true);
+				sender.start();
+				senders.add(sender);
+			}
+		}
+
+		try {
+			while (!done.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				Job job;
+				while (live.get() == 0 && (job = pending.poll()) != null) {
+					job.score = localSearch(job.caller).scorePosition(job.board, job.toMove, job.depth);
+					nodes.addAndGet(localSearch(job.caller).getNodeCount());
+					done.countDown();
+				}
+			}
+			for (Thread sender : senders) {
+				sender.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Split search interrupted", e);
+		}
+	}
+
+	/**
+	 * Sender thread loop - sends positions to one worker until every position is searched or the
+	 * worker fails. The sender waits while the queue is empty, as a failed worker's position may
+	 * still be put back.
+	 */
+	private void send(WorkerLink worker, BlockingQueue<Job> pending, CountDownLatch done) {
+		while (done.getCount() > 0) {
+			Job job;
+			try {
+				job = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (job == null) {
+				continue;
+			}
+			try {
+				worker.out.writeByte(SearchWorker.SEARCH);
+				worker.out.writeInt(job.id);
+				worker.out.writeByte(job.board.getGameWinAmount());
+				worker.out.writeByte(job.depth);
+				worker.out.writeByte(Counter.indexOf(job.caller));
+				worker.out.writeByte(Counter.indexOf(job.toMove));
+				worker.out.write(SearchWorker.encode(job.board));
+				worker.out.flush();
+				if (worker.in.readInt() != job.id) {
+					throw new IOException("Answer for the wrong position");
+				}
+				job.score = worker.in.readInt();
+				nodes.addAndGet(worker.in.readLong());
+				done.countDown();
+			} catch (IOException e) {
+				//Timed out or gone - drop the worker and send its position elsewhere
+				System.err.println("Search worker dropped: " + e);
+				worker.close();
+				live.decrementAndGet();
+				redispatches.incrementAndGet();
+				pending.add(job);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Finds the local search of a calling player, used for shallow searches, finished games and
+	 * positions left when no worker remains.
+	 */
+	private BotSearch localSearch(char caller) {
+		int index = Counter.indexOf(caller);
+		if (local[index] == null) {
+			local[index] = new BotSearch(caller);
+			Bot.configure(local[index]);
+		}
+		return local[index];
+	}
+
+	private static char nextPlayer(char player) {
+		return Counter.playerSymbols[(Counter.indexOf(player) + 1) % Counter.playerSymbols.length];
+	}
+
+	/**
+	 * Copies a board and places a counter in the copy.
+	 * @return board
+	 * 		the new board, or null if the column is full
+	 */
+	private static Board afterMove(Board board, char symbol, int column) {
+		Board next = null;
+		if (board.getBoard()[0][column-1] == Board.BOARD_SPACE) {
+			char[][] cells = new char[Board.BOARD_HEIGHT][];
+			for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+				cells[row] = board.getBoard()[row].clone();
+			}
+			next = new Board(board.getGameWinAmount());
+			next.setBoard(cells);
+			next.placeCounter(symbol, column);
+		}
+		return next;
+	}
+
+	/**
+	 * Accessor for the score of the best column found by the last search.
+	 * @return bestScore
+	 */
+	public int getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Accessor for the number of positions searched by the last search, over all workers.
+	 * @return nodes
+	 */
+	public long getNodeCount() {
+		return nodes.get();
+	}
+
+	/**
+	 * Accessor for the number of positions the last search sent to workers.
+	 * @return jobs
+	 */
+	public int getJobs() {
+		return jobs;
+	}
+
+	/**
+	 * Accessor for the number of positions the last search re-sent after a worker failed.
+	 * @return redispatches
+	 */
+	public int getRedispatches() {
+		return redispatches.get();
+	}
+
+	/**
+	 * Accessor for the number of workers still connected.
+	 * @return workers
+	 */
+	public int getLiveWorkers() {
+		return live.get();
+	}
+
+	/**
+	 * Asks the workers to quit and stops those the coordinator started.
+	 */
+	@Override
+	public void close() {
+		for (WorkerLink worker : workers) {
+			if (!worker.failed) {
+				try {
+					worker.out.writeByte(SearchWorker.QUIT);
+					worker.out.flush();
+				} catch (IOException e) {
+					// Do nothing - the worker is stopped below
+				}
+				worker.close();
+			}
+			if (worker.process != null) {
+				worker.process.destroy();
+			}
+		}
+		live.set(0);
+	}
+
+	/**
+	 * A position two plies below the root and its score once searched.
+	 */
+	private static class Job {
+		private final int id;
+		private final Board board;
+		private final char caller;
+		private final char toMove;
+		private final int depth;
+		private volatile int score;
+
+		Job(int id, Board board, char caller, char toMove, int depth) {
+			this.id = id;
+			this.board = board;
+			this.caller = caller;
+			this.toMove = toMove;
+			this.depth = depth;
+		}
+	}
+
+	/**
+	 * Connection to one worker.
+	 */
+	private static class WorkerLink {
+		private final Socket socket;
+		private final Process process;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		private volatile boolean failed;
+
+		WorkerLink(Socket socket, Process process) throws IOException {
+			this.socket = socket;
+			this.process = process;
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		void close() {
+			failed = true;
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Do nothing - the connection is being dropped anyway
+			}
+			if (process != null) {
+				process.destroyForcibly();
+			}
+		}
+	}
+}
\ No newline at end of file
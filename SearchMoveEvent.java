@@ -0,0 +1,45 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event committed for every move chosen by a robot player.
+ * The event duration is the time taken to choose the move.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see Bot.java
+ *
+ */
+@Name("connectn.SearchMove")
+@Label("Bot Move Search")
+@Category({"Connect N", "Search"})
+@Description("Search performed by a robot player to choose its next move")
+@StackTrace(false)
+public class SearchMoveEvent extends Event {
+	@Label("Player")
+	char player;
+
+	@Label("Depth")
+	int depth;
+
+	@Label("Nodes")
+	long nodes;
+
+	@Label("Column")
+	int column;
+
+	@Label("Cache Hit Rate")
+	@Percentage
+	double cacheHitRate;
+
+	@Label("Allocated")
+	@DataAmount
+	long allocated;
+}
\ No newline at end of file
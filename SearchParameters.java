@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Tunable weights of the robot player's board scoring.
+ *
+ * The weight of each column is added to the score of a move into it at every ply, so the search
+ * prefers central columns when board scores are equal, and the streak bonus is added to the
+ * streak score for every vertical or horizontal streak of three or more counters. The defaults
+ * are the original hand-picked values. Parameters are saved as a properties file, as written by
+ * ParameterTuner, and loaded by Bot from the file named by the connectn.parameters property.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see ParameterTuner.java
+ *
+ */
+public final class SearchParameters {
+	//Largest value of any parameter, keeping the batch evaluator's byte lanes from overflowing
+	static final int MAX_VALUE = 16;
+	static final String BONUS_NAME = "streakBonus";
+	public static final SearchParameters DEFAULTS = new SearchParameters(new int[] {0, 1, 2, 3, 2, 0, 0}, 3);
+
+	private final int[] columnWeights;
+	private final int streakBonus;
+
+	/**
+	 * Constructor sets every parameter.
+	 * @param columnWeights
+	 * 		the weight of each column, left to right
+	 * @param streakBonus
+	 * 		the bonus for a streak of three or more
+	 */
+	public SearchParameters(int[] columnWeights, int streakBonus) {
+		if (columnWeights.length != Board.BOARD_WIDTH) {
+			throw new IllegalArgumentException("Expected " + Board.BOARD_WIDTH + " column weights");
+		}
+		for (int weight : columnWeights) {
+			checkRange("column weight", weight);
+		}
+		checkRange(BONUS_NAME, streakBonus);
+		this.columnWeights = columnWeights.clone();
+		this.streakBonus = streakBonus;
+	}
+
+	/**
+	 * Accessor for the weight of a column.
+	 * @param column
+	 * 		the column, numbered 1-7
+	 * @return weight
+	 */
+	public int getColumnWeight(int column) {
+		return columnWeights[column - 1];
+	}
+
+	/**
+	 * Accessor for the bonus added for each vertical or horizontal streak of three or more.
+	 * @return streakBonus
+	 */
+	public int getStreakBonus() {
+		return streakBonus;
+	}
+
+	/**
+	 * Reads parameters from a properties file. Parameters missing from the file keep their
+	 * default values.
+	 * @param file
+	 * 		the parameters file
+	 * @return parameters
+	 * @throws IOException
+	 * 		if the file cannot be read or holds a value that is not a whole number in range
+	 */
+	public static SearchParameters load(Path file) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+			properties.load(reader);
+		}
+		double[] values = DEFAULTS.toVector();
+		for (int i = 0; i < values.length; i++) {
+			String value = properties.getProperty(name(i));
+			if (value != null) {
+				try {
+					values[i] = Integer.parseInt(value.trim());
+				} catch (NumberFormatException e) {
+					throw new IOException("Parameter " + name(i) + " is not a whole number in " + file);
+				}
+				if (values[i] < 0 || values[i] > MAX_VALUE) {
+					throw new IOException("Parameter " + name(i) + " is outside 0-" + MAX_VALUE + " in " + file);
+				}
+			}
+		}
+		return fromVector(values);
+	}
+
+	/**
+	 * Writes the parameters to a properties file.
+	 * @param file
+	 * 		the file to create or overwrite
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		Properties properties = new Properties();
+		double[] values = toVector();
+		for (int i = 0; i < values.length; i++) {
+			properties.setProperty(name(i), Integer.toString((int) values[i]));
+		}
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+			properties.store(writer, "Connect N search parameters");
+		}
+	}
+
+	/**
+	 * Name of a parameter in files and tuning - column1 to column7, then the streak bonus.
+	 * @param index
+	 * 		the position of the parameter in the vector
+	 * @return name
+	 */
+	static String name(int index) {
+		return (index < Board.BOARD_WIDTH) ? "column" + (index + 1) : BONUS_NAME;
+	}
+
+	/**
+	 * Lists the parameters as a vector for tuning.
+	 * @return values
+	 * 		the column weights followed by the streak bonus
+	 */
+	double[] toVector() {
+		double[] values = new double[Board.BOARD_WIDTH + 1];
+		for (int i = 0; i < Board.BOARD_WIDTH; i++) {
+			values[i] = columnWeights[i];
+		}
+		values[Board.BOARD_WIDTH] = streakBonus;
+		return values;
+	}
+
+	/**
+	 * Creates parameters from a tuning vector, rounding each value and limiting it to the range.
+	 * @param values
+	 * 		the column weights followed by the streak bonus
+	 * @return parameters
+	 */
+	static SearchParameters fromVector(double[] values) {
+		int[] rounded = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			rounded[i] = (int) Math.max(Math.min(Math.round(values[i]), MAX_VALUE), 0);
+		}
+		return new SearchParameters(Arrays.copyOf(rounded, Board.BOARD_WIDTH), rounded[Board.BOARD_WIDTH]);
+	}
+
+	private static void checkRange(String name, int value) {
+		if (value < 0 || value > MAX_VALUE) {
+			throw new IllegalArgumentException("Search parameter " + name + " must be 0-" + MAX_VALUE + ": " + value);
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof SearchParameters && streakBonus == ((SearchParameters) other).streakBonus
+				&& Arrays.equals(columnWeights, ((SearchParameters) other).columnWeights);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(columnWeights) + streakBonus;
+	}
+
+	@Override
+	public String toString() {
+		return "columns " + Arrays.toString(columnWeights) + ", streak bonus " + streakBonus;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,530 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runs robot move searches from many games on a fixed pool of worker threads, earliest move
+ * deadline first.
+ *
+ * Each search runs in slices of a fixed number of nodes. After a slice the search is suspended
+ * and goes back in the queue, so a deep search cannot hold a worker while moves due sooner are
+ * waiting. Once a move reaches its deadline it is answered with the deepest iteration completed
+ * so far, which keeps move latency close to the deadline however many games are waiting.
+ * Robots may also queue background searches of positions they expect to face, which run only
+ * while no move is waiting. A search is never run by two workers at once: a task for a search
+ * still in use waits for the earlier task to finish, and a move stops its search's background
+ * task. Cancelling a task's future stops it after its current slice, and a search that fails
+ * completes its future with the error without stopping the worker.
+ * Statistics for the whole pool and for each game in play are published over JMX as
+ * "ConnectN:type=SearchScheduler".
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see BotSearch.java
+ *
+ */
+public class SearchScheduler implements SearchSchedulerMBean {
+	public static final String OBJECT_NAME = "ConnectN:type=SearchScheduler";
+	//Nodes searched before a search gives up its worker, around a millisecond of work
+	static final long SLICE_NODES = 2000;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final PriorityBlockingQueue<MoveTask> queue = new PriorityBlockingQueue<MoveTask>();
+	private final Thread[] workers;
+	private final AtomicLong sequence = new AtomicLong();
+	private final Map<String, GameStats> games = new ConcurrentHashMap<String, GameStats>();
+	//Most recent task queued for each search, until it lets go of the search
+	private final Map<BotSearch, MoveTask> latest = new ConcurrentHashMap<BotSearch, MoveTask>();
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder moves = new LongAdder();
+	private final LongAdder slices = new LongAdder();
+	private final LongAdder deadlineMisses = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	//Worker time per move of ended games, kept for the fairness index once their statistics go
+	private int endedGames;
+	private double endedShares;
+	private double endedSquares;
+	private volatile boolean running = true;
+
+	/**
+	 * Constructor starts the worker threads and registers the statistics over JMX.
+	 * @param workerCount
+	 * 		the number of worker threads, normally the number of processors
+	 */
+	public SearchScheduler(int workerCount) {
+		workers = new Thread[Math.max(workerCount, 1)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(this::work, "search-worker-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		register();
+	}
+
+	/**
+	 * Queues a move search.
+	 * @param game
+	 * 		name of the game the move is for, used for per-game statistics
+	 * @param search
+	 * 		the player's search, which must not be used elsewhere until the move is answered
+	 * @param board
+	 * 		the current state of the game board
+	 * @param depth
+	 * 		the depth of turns to search if the deadline allows
+	 * @param deadline
+	 * 		System.nanoTime by which the move is needed
+	 * @return column
+	 * 		completes with the best column found by the deadline
+	 */
+	public CompletableFuture<Integer> submit(String game, BotSearch search, Board board, int depth, long deadline) {
+		return enqueue(new MoveTask(game, search, board, depth, deadline, false, sequence.getAndIncrement()));
+	}
+
+	/**
+	 * Queues a background search of a position a robot expects to face, filling its
+	 * transposition table while the workers have nothing more urgent to do. The search is
+	 * stopped when a move is submitted for it or when the future is cancelled.
+	 * @param game
+	 * 		name of the game the search is for
+	 * @param search
+	 * 		the player's search
+	 * @param board
+	 * 		the expected position, which must not change until the search finishes
+	 * @param depth
+	 * 		the depth of turns to search
+	 * @return column
+	 * 		completes with the best column found once the depth is searched or the search stopped
+	 */
+	public CompletableFuture<Integer> ponder(String game, BotSearch search, Board board, int depth) {
+		return enqueue(new MoveTask(game, search, board, depth, 0, true, sequence.getAndIncrement()));
+	}
+
+	/**
+	 * Queues a task once the search is free of any earlier task, stopping an earlier background
+	 * task, and removes a waiting task from the queue when its future is cancelled.
+	 */
+	private CompletableFuture<Integer> enqueue(MoveTask task) {
+		if (!running) {
+			task.result.completeExceptionally(new IllegalStateException("Search scheduler is shut down"));
+			task.released.complete(null);
+			return task.result;
+		}
+		task.result.whenComplete((column, error) -> {
+			if (task.result.isCancelled() && queue.remove(task)) {
+				release(task);
+			}
+		});
+		MoveTask previous = latest.put(task.search, task);
+		if (previous == null) {
+			queue.add(task);
+		} else {
+			if (previous.background && !task.background) {
+				previous.result.cancel(false);
+			}
+			previous.released.thenRun(() -> requeue(task));
+		}
+		return task.result;
+	}
+
+	/**
+	 * Puts a task back in the queue, releasing it instead if it was cancelled meanwhile or the
+	 * workers have stopped. Checking after adding catches a cancel that missed the queue.
+	 */
+	private void requeue(MoveTask task) {
+		if (!running) {
+			task.result.complete(task.search.getBestColumn());
+			release(task);
+		} else {
+			queue.add(task);
+			if (task.result.isDone() && queue.remove(task)) {
+				release(task);
+			}
+		}
+	}
+
+	/**
+	 * Marks a task's search free for the next task.
+	 */
+	private void release(MoveTask task) {
+		latest.remove(task.search, task);
+		task.released.complete(null);
+	}
+
+	/**
+	 * Searches a move and waits for the result.
+	 * @param game
+	 * 		name of the game the move is for
+	 * @param search
+	 * 		the player's search
+	 * @param board
+	 * 		the current state of the game board
+	 * @param depth
+	 * 		the depth of turns to search if the deadline allows
+	 * @param millis
+	 * 		time allowed for the move in milliseconds
+	 * @return column
+	 * 		the best column found in the time allowed
+	 */
+	public int searchMove(String game, BotSearch search, Board board, int depth, long millis) {
+		CompletableFuture<Integer> result = submit(game, search, board, depth, System.nanoTime() + millis * 1000000);
+		boolean interrupted = false;
+		int column = 0;
+		while (column == 0) {
+			try {
+				column = result.get();
+			} catch (InterruptedException e) {
+				//Keep waiting - the search holds the board, so the move must finish first
+				interrupted = true;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Move search failed", e.getCause());
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return column;
+	}
+
+	/**
+	 * Stops the workers. Queued moves are answered with their best column so far.
+	 */
+	public void shutdown() {
+		running = false;
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+		MoveTask task;
+		while ((task = queue.poll()) != null) {
+			task.result.complete(task.search.getBestColumn());
+			release(task);
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			// Do nothing - another scheduler may have replaced the registration
+		}
+	}
+
+	/**
+	 * Worker loop - runs one slice of the most urgent search, then requeues or answers it.
+	 */
+	private void work() {
+		while (running) {
+			MoveTask task;
+			try {
+				task = queue.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if (task.result.isDone()) {
+				//Cancelled while waiting
+				release(task);
+				continue;
+			}
+			long start = System.nanoTime();
+			boolean searched;
+			boolean finished;
+			try {
+				if (task.firstSlice == 0) {
+					task.firstSlice = start;
+					task.search.startSearch(task.board, task.depth);
+				}
+				//A move is never answered before its first iteration, which takes only a few nodes
+				searched = task.search.getDepthReached() > 0;
+				finished = task.search.continueSearch(SLICE_NODES, (searched && !task.background) ? task.deadline : 0);
+			} catch (RuntimeException e) {
+				//Answer the move with the error and free the search for its next task
+				failures.increment();
+				task.result.completeExceptionally(e);
+				release(task);
+				continue;
+			}
+			long end = System.nanoTime();
+			task.serviceNanos += end - start;
+			task.slices++;
+			slices.increment();
+
+			searched = task.search.getDepthReached() > 0;
+			if (task.result.isDone()) {
+				release(task);
+			} else if (task.background && (finished || !running)) {
+				task.result.complete(task.search.getBestColumn());
+				release(task);
+			} else if (!task.background && (finished || (searched && end >= task.deadline) || !running)) {
+				complete(task, end);
+			} else {
+				requeue(task);
+			}
+		}
+	}
+
+	/**
+	 * Answers a move and records its statistics.
+	 */
+	private void complete(MoveTask task, long end) {
+		long nanos = end - task.submitted;
+		boolean late = end > task.deadline;
+		latency.record(nanos);
+		moves.increment();
+		if (late) {
+			deadlineMisses.increment();
+		}
+		games.computeIfAbsent(task.game, game -> new GameStats()).record(nanos, task.firstSlice - task.submitted,
+				task.serviceNanos, task.slices, late);
+		task.result.complete(task.search.getBestColumn());
+		release(task);
+	}
+
+	/**
+	 * Drops the statistics of a game that has ended, so the statistics kept do not grow with the
+	 * number of games played. The game's worker time per move still counts in the fairness index.
+	 * @param game
+	 * 		name of the game
+	 */
+	public synchronized void endGame(String game) {
+		GameStats stats = games.remove(game);
+		if (stats != null && stats.getMoves() > 0) {
+			double share = stats.getServiceMillisPerMove();
+			endedGames++;
+			endedShares += share;
+			endedSquares += share * share;
+		}
+	}
+
+	/**
+	 * Finds the statistics of every game in play that has had a move answered.
+	 * @return games
+	 * 		statistics by game name
+	 */
+	public Map<String, GameStats> getGameStats() {
+		return new TreeMap<String, GameStats>(games);
+	}
+
+	@Override
+	public int getWorkers() {
+		return workers.length;
+	}
+
+	@Override
+	public int getQueueLength() {
+		return queue.size();
+	}
+
+	@Override
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	@Override
+	public long getSlices() {
+		return slices.sum();
+	}
+
+	@Override
+	public long getDeadlineMisses() {
+		return deadlineMisses.sum();
+	}
+
+	@Override
+	public double getLatencyP50Millis() {
+		return latency.getPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyP99Millis() {
+		return latency.getPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyMaxMillis() {
+		return latency.getMax() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long getSearchFailures() {
+		return failures.sum();
+	}
+
+	@Override
+	public int getGames() {
+		return games.size();
+	}
+
+	@Override
+	public synchronized double getFairnessIndex() {
+		//Jain's index of the worker time each game received per move
+		double sum = endedShares;
+		double squares = endedSquares;
+		int count = endedGames;
+		for (GameStats stats : games.values()) {
+			double share = stats.getServiceMillisPerMove();
+			sum += share;
+			squares += share * share;
+			count++;
+		}
+		return (squares > 0) ? sum * sum / (count * squares) : 1;
+	}
+
+	@Override
+	public synchronized void reset() {
+		latency.reset();
+		moves.reset();
+		slices.reset();
+		deadlineMisses.reset();
+		failures.reset();
+		games.clear();
+		endedGames = 0;
+		endedShares = 0;
+		endedSquares = 0;
+	}
+
+	/**
+	 * Registers the statistics with the platform MBean server, replacing an earlier scheduler's.
+	 * Failure to register is reported but does not stop the scheduler.
+	 */
+	private void register() {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			}
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		} catch (JMException e) {
+			System.err.println("Search scheduler statistics not registered: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A queued or suspended search, moves before background searches, then ordered by deadline
+	 * and then by arrival.
+	 */
+	private static class MoveTask implements Comparable<MoveTask> {
+		private final String game;
+		private final BotSearch search;
+		private final Board board;
+		private final int depth;
+		private final long deadline;
+		private final boolean background;
+		private final long order;
+		private final long submitted = System.nanoTime();
+		private final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+		//Completes once no worker holds the search
+		private final CompletableFuture<Void> released = new CompletableFuture<Void>();
+		private long firstSlice;
+		private long serviceNanos;
+		private int slices;
+
+		MoveTask(String game, BotSearch search, Board board, int depth, long deadline, boolean background, long order) {
+			this.game = game;
+			this.search = search;
+			this.board = board;
+			this.depth = depth;
+			this.deadline = deadline;
+			this.background = background;
+			this.order = order;
+		}
+
+		@Override
+		public int compareTo(MoveTask other) {
+			int compare = Boolean.compare(background, other.background);
+			if (compare == 0 && !background) {
+				compare = Long.compare(deadline - other.deadline, 0);
+			}
+			return (compare != 0) ? compare : Long.compare(order, other.order);
+		}
+	}
+
+	/**
+	 * Move statistics of one game.
+	 */
+	public static class GameStats {
+		private long moves;
+		private long latencyNanos;
+		private long maxLatencyNanos;
+		private long waitNanos;
+		private long serviceNanos;
+		private long slices;
+		private long deadlineMisses;
+
+		/**
+		 * Adds one answered move.
+		 */
+		synchronized void record(long latency, long wait, long service, int moveSlices, boolean missed) {
+			moves++;
+			latencyNanos += latency;
+			maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+			waitNanos += wait;
+			serviceNanos += service;
+			slices += moveSlices;
+			if (missed) {
+				deadlineMisses++;
+			}
+		}
+
+		/**
+		 * @return the number of moves answered
+		 */
+		public synchronized long getMoves() {
+			return moves;
+		}
+
+		/**
+		 * @return the average time from request to answer in milliseconds
+		 */
+		public synchronized double getMeanLatencyMillis() {
+			return (moves > 0) ? latencyNanos / NANOS_PER_MILLI / moves : 0;
+		}
+
+		/**
+		 * @return the longest time from request to answer in milliseconds
+		 */
+		public synchronized double getMaxLatencyMillis() {
+			return maxLatencyNanos / NANOS_PER_MILLI;
+		}
+
+		/**
+		 * @return the average wait before a move's first slice in milliseconds
+		 */
+		public synchronized double getMeanWaitMillis() {
+			return (moves > 0) ? waitNanos / NANOS_PER_MILLI / moves : 0;
+		}
+
+		/**
+		 * @return the average worker time spent on each move in milliseconds
+		 */
+		public synchronized double getServiceMillisPerMove() {
+			return (moves > 0) ? serviceNanos / NANOS_PER_MILLI / moves : 0;
+		}
+
+		/**
+		 * @return the number of slices run
+		 */
+		public synchronized long getSlices() {
+			return slices;
+		}
+
+		/**
+		 * @return the number of moves answered after their deadline
+		 */
+		public synchronized long getDeadlineMisses() {
+			return deadlineMisses;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format(java.util.Locale.ROOT, "%d moves, mean %.2f ms, max %.2f ms, wait %.2f ms, service %.2f ms/move, %d missed",
+					moves, getMeanLatencyMillis(), getMaxLatencyMillis(), getMeanWaitMillis(), getServiceMillisPerMove(),
+					deadlineMisses);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+/**
+ * Management interface exposing the statistics of a search scheduler.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchScheduler.java
+ *
+ */
+public interface SearchSchedulerMBean {
+
+	/**
+	 * @return the number of worker threads
+	 */
+	int getWorkers();
+
+	/**
+	 * @return the number of searches waiting for a worker, including suspended searches
+	 */
+	int getQueueLength();
+
+	/**
+	 * @return the number of moves answered since the statistics were reset
+	 */
+	long getMoves();
+
+	/**
+	 * @return the number of search slices run since the statistics were reset
+	 */
+	long getSlices();
+
+	/**
+	 * @return the number of moves answered after their deadline
+	 */
+	long getDeadlineMisses();
+
+	/**
+	 * @return the median time from move request to answer in milliseconds
+	 */
+	double getLatencyP50Millis();
+
+	/**
+	 * @return the 99th percentile time from move request to answer in milliseconds
+	 */
+	double getLatencyP99Millis();
+
+	/**
+	 * @return the longest time from move request to answer in milliseconds
+	 */
+	double getLatencyMaxMillis();
+
+	/**
+	 * @return the number of searches that failed with an error, answered with that error
+	 */
+	long getSearchFailures();
+
+	/**
+	 * @return the number of games in play that have had a move answered
+	 */
+	int getGames();
+
+	/**
+	 * @return Jain's fairness index of worker time per move across games, ended games included, 1
+	 * when every game is served equally
+	 */
+	double getFairnessIndex();
+
+	/**
+	 * Clears all statistics.
+	 */
+	void reset();
+}
\ No newline at end of file
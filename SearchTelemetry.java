@@ -0,0 +1,110 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process wide aggregate of robot player search statistics, published over JMX as
+ * "ConnectN:type=SearchTelemetry".
+ *
+ * Recording only updates counters and a lock free histogram so it can stay enabled under load.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchTelemetryMBean.java
+ *
+ */
+public class SearchTelemetry implements SearchTelemetryMBean {
+	public static final String OBJECT_NAME = "ConnectN:type=SearchTelemetry";
+	private static final SearchTelemetry INSTANCE = register(new SearchTelemetry());
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder moves = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+	private volatile long startTime = System.nanoTime();
+
+	/**
+	 * Accessor for the shared telemetry of the process.
+	 * @return instance
+	 */
+	public static SearchTelemetry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Records one completed move search.
+	 * @param nanos
+	 * 		time taken to choose the move in nanoseconds
+	 * @param searched
+	 * 		the number of positions searched
+	 */
+	public void recordMove(long nanos, long searched) {
+		latency.record(nanos);
+		moves.increment();
+		nodes.add(searched);
+		searchNanos.add(nanos);
+	}
+
+	@Override
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	@Override
+	public double getMovesPerSecond() {
+		double seconds = (System.nanoTime() - startTime) / (NANOS_PER_MILLI * 1000);
+		return (seconds > 0) ? moves.sum() / seconds : 0;
+	}
+
+	@Override
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	@Override
+	public double getNodesPerSecond() {
+		long nanos = searchNanos.sum();
+		return (nanos > 0) ? nodes.sum() / (nanos / (NANOS_PER_MILLI * 1000)) : 0;
+	}
+
+	@Override
+	public double getLatencyP50Millis() {
+		return latency.getPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyP99Millis() {
+		return latency.getPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyMaxMillis() {
+		return latency.getMax() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public void reset() {
+		latency.reset();
+		moves.reset();
+		nodes.reset();
+		searchNanos.reset();
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Registers the telemetry with the platform MBean server.
+	 * Failure to register is reported but does not stop the game.
+	 */
+	private static SearchTelemetry register(SearchTelemetry telemetry) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(telemetry, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			System.err.println("Search telemetry not registered: " + e.getMessage());
+		}
+		return telemetry;
+	}
+}
\ No newline at end of file
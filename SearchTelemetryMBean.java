@@ -0,0 +1,51 @@
+/**
+ * Management interface exposing search statistics of all robot players in the process.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchTelemetry.java
+ *
+ */
+public interface SearchTelemetryMBean {
+
+	/**
+	 * @return the number of moves chosen since the statistics were reset
+	 */
+	long getMoves();
+
+	/**
+	 * @return the average number of moves chosen per second since the statistics were reset
+	 */
+	double getMovesPerSecond();
+
+	/**
+	 * @return the total number of positions searched since the statistics were reset
+	 */
+	long getNodes();
+
+	/**
+	 * @return the number of positions searched per second of move search time
+	 */
+	double getNodesPerSecond();
+
+	/**
+	 * @return the median move latency in milliseconds
+	 */
+	double getLatencyP50Millis();
+
+	/**
+	 * @return the 99th percentile move latency in milliseconds
+	 */
+	double getLatencyP99Millis();
+
+	/**
+	 * @return the largest move latency in milliseconds
+	 */
+	double getLatencyMaxMillis();
+
+	/**
+	 * Clears all statistics.
+	 */
+	void reset();
+}
\ No newline at end of file
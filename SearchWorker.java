@@ -0,0 +1,201 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Worker process searching subtrees of a root split for SearchCoordinator.
+ *
+ * The worker listens on a localhost port and serves one coordinator connection at a time. Each
+ * request is a position with the player to move, the calling player and the depth, and each
+ * answer is the position's score and the nodes searched. Positions are sent in eleven bytes, two
+ * bits per square. The worker keeps one search per calling player, so its transposition tables
+ * carry over between the subtrees it is sent.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see SearchCoordinator.java
+ *
+ */
+public class SearchWorker {
+	//Request types
+	static final byte SEARCH = 1;
+	static final byte QUIT = 2;
+	//Bytes of an encoded board, two bits per square
+	static final int BOARD_BYTES = (Board.BOARD_HEIGHT * Board.BOARD_WIDTH * 2 + 7) / 8;
+	//Line printed once the worker is listening, followed by its port
+	static final String READY = "READY";
+
+	private final BotSearch[] searches = new BotSearch[Counter.playerSymbols.length];
+
+	/**
+	 * Main function to run a worker from the command line.
+	 * @param args
+	 * 		optional port to listen on (0 for any free port), and "--attached" to exit once
+	 * 		standard input closes, as it does when the coordinator that started the worker exits
+	 * @throws IOException
+	 * 		if the port cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+		boolean attached = args.length > 1 && args[1].equals("--attached");
+		if (attached) {
+			Thread watcher = new Thread(() -> {
+				try {
+					while (System.in.read() >= 0) {
+						// Do nothing - wait for the coordinator to go away
+					}
+				} catch (IOException e) {
+					// Do nothing - a closed input means the same as the end of it
+				}
+				System.exit(0);
+			}, "coordinator-watch");
+			watcher.setDaemon(true);
+			watcher.start();
+		}
+
+		try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+			System.out.println(READY + " " + server.getLocalPort());
+			System.out.flush();
+			SearchWorker worker = new SearchWorker();
+			boolean running = true;
+			while (running) {
+				try (Socket socket = server.accept()) {
+					running = worker.serve(socket);
+				} catch (IOException e) {
+					System.err.println("Coordinator connection lost: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Answers requests from one coordinator until it disconnects or asks the worker to quit.
+	 * @param socket
+	 * 		the coordinator connection
+	 * @return running
+	 * 		false if the worker was asked to quit
+	 * @throws IOException
+	 * 		if the connection fails
+	 */
+	boolean serve(Socket socket) throws IOException {
+		socket.setTcpNoDelay(true);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		byte[] encoded = new byte[BOARD_BYTES];
+
+		while (true) {
+			byte type;
+			try {
+				type = in.readByte();
+			} catch (EOFException e) {
+				return true;
+			}
+			if (type == QUIT) {
+				return false;
+			} else if (type != SEARCH) {
+				throw new IOException("Unknown request type " + type);
+			}
+			int job = in.readInt();
+			int N = in.readByte();
+			int depth = in.readByte();
+			char caller = Counter.playerSymbols[in.readByte()];
+			char toMove = Counter.playerSymbols[in.readByte()];
+			in.readFully(encoded);
+
+			BotSearch search = searchFor(caller);
+			int score = search.scorePosition(decode(encoded, N), toMove, depth);
+			out.writeInt(job);
+			out.writeInt(score);
+			out.writeLong(search.getNodeCount());
+			out.flush();
+		}
+	}
+
+	/**
+	 * Finds the search of a calling player, creating it with the robot player's settings.
+	 */
+	private BotSearch searchFor(char caller) {
+		int index = Counter.indexOf(caller);
+		if (searches[index] == null) {
+			searches[index] = new BotSearch(caller);
+			Bot.configure(searches[index]);
+		}
+		return searches[index];
+	}
+
+	/**
+	 * Packs a board into two bits per square - 0 for a space, else the player's index plus one.
+	 * @param board
+	 * 		the board to encode
+	 * @return encoded
+	 * 		the board in BOARD_BYTES bytes, row by row from the top
+	 */
+	static byte[] encode(Board board) {
+		byte[] encoded = new byte[BOARD_BYTES];
+		char[][] squares = board.getBoard();
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			for (int column = 0; column < Board.BOARD_WIDTH; column++) {
+				int bit = 2 * (row * Board.BOARD_WIDTH + column);
+				int code = (squares[row][column] == Board.BOARD_SPACE) ? 0 : Counter.indexOf(squares[row][column]) + 1;
+				encoded[bit / 8] |= code << (bit % 8);
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * Unpacks a board packed by encode.
+	 * @param encoded
+	 * 		the packed squares
+	 * @param N
+	 * 		the game win amount
+	 * @return board
+	 * @throws IOException
+	 * 		if a square holds an unknown player
+	 */
+	static Board decode(byte[] encoded, int N) throws IOException {
+		char[][] squares = new char[Board.BOARD_HEIGHT][Board.BOARD_WIDTH];
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			for (int column = 0; column < Board.BOARD_WIDTH; column++) {
+				int bit = 2 * (row * Board.BOARD_WIDTH + column);
+				int code = (encoded[bit / 8] >>> (bit % 8)) & 3;
+				if (code > Counter.playerSymbols.length) {
+					throw new IOException("Unknown player in encoded board");
+				}
+				squares[row][column] = (code == 0) ? Board.BOARD_SPACE : Counter.playerSymbols[code - 1];
+			}
+		}
+		Board board = new Board(N);
+		board.setBoard(squares);
+		return board;
+	}
+
+	/**
+	 * Reads the port a started worker prints once it is listening.
+	 * @param output
+	 * 		the worker's standard output
+	 * @return port
+	 * @throws IOException
+	 * 		if the worker exits or prints something else first
+	 */
+	static int readPort(InputStream output) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int next;
+		while ((next = output.read()) >= 0 && next != '\n') {
+			line.append((char) next);
+		}
+		String text = line.toString().trim();
+		if (!text.startsWith(READY + " ")) {
+			throw new IOException("Search worker did not start: " + text);
+		}
+		return Integer.parseInt(text.substring(READY.length() + 1));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Command line self-play match between robot players using paranoid minimax and Best-Reply
+ * Search, or between the streak heuristic and a learned n-tuple evaluator when given its weights.
+ *
+ * Every game seats both engines, cycling through each arrangement of one against two and two
+ * against one so neither engine gains from its seats, and starts from a random opening round so
+ * games differ. Results, search speed and depth are totalled per engine.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see BotSearch.java
+ *
+ */
+public class SelfPlay {
+	private static final long SEED = 2018;
+	private static final String[] SEARCH_ENGINES = {"paranoid", "best-reply"};
+	private static final String[] EVALUATOR_ENGINES = {"streaks", "n-tuple"};
+	//Engine of each seat, covering every mix of the two engines
+	static final int[][] SEATINGS = {
+			{0, 0, 1}, {0, 1, 0}, {1, 0, 0},
+			{0, 1, 1}, {1, 0, 1}, {1, 1, 0}};
+
+	private final String[] engines;
+	private final NTupleEvaluator evaluator;
+	private final long[] seats = new long[2];
+	private final long[] wins = new long[2];
+	private final long[] moves = new long[2];
+	private final long[] nodes = new long[2];
+	private final long[] nanos = new long[2];
+	private final long[] depths = new long[2];
+	private long draws;
+
+	/**
+	 * Main function to run the match from the command line.
+	 * @param args
+	 * 		optional number of games, N, budget per move as nodes or as milliseconds such as
+	 * 		"50ms" (0 for the fixed depth) and n-tuple weights file
+	 * @throws IOException
+	 * 		if the weights file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : SEATINGS.length * 4;
+		int N = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		String budget = (args.length > 2) ? args[2] : "0";
+		NTupleEvaluator evaluator = (args.length > 3) ? NTupleEvaluator.load(Paths.get(args[3])) : null;
+		boolean timed = budget.endsWith("ms");
+		long amount = Long.parseLong(timed ? budget.substring(0, budget.length() - 2) : budget);
+
+		SelfPlay match = new SelfPlay(evaluator);
+		Board[] openings = SearchBenchmark.randomPositions(games, N, SEED, 1);
+		for (int game = 0; game < games; game++) {
+			match.playGame(openings[game], SEATINGS[game % SEATINGS.length], timed ? 0 : amount, timed ? amount : 0);
+		}
+		System.out.println(games + " games, N = " + N + ", " + ((amount == 0) ? "fixed depth"
+				: timed ? amount + " ms per move" : amount + " nodes per move"));
+		match.printResults();
+	}
+
+	/**
+	 * Constructor sets the engines to match.
+	 * @param evaluator
+	 * 		learned evaluator to match against the streak heuristic, or null to match paranoid
+	 * 		minimax against Best-Reply Search
+	 */
+	public SelfPlay(NTupleEvaluator evaluator) {
+		this.evaluator = evaluator;
+		this.engines = (evaluator != null) ? EVALUATOR_ENGINES : SEARCH_ENGINES;
+	}
+
+	/**
+	 * Plays one game, adding its result and search statistics to the totals.
+	 * @param board
+	 * 		the opening position, with the first player to move
+	 * @param seating
+	 * 		the engine of each seat
+	 * @param nodeBudget
+	 * 		nodes per move, or 0 for no node limit
+	 * @param moveMillis
+	 * 		time per move in milliseconds, or 0 for no time limit
+	 */
+	private void playGame(Board board, int[] seating, long nodeBudget, long moveMillis) {
+		Bot[] players = new Bot[Counter.playerSymbols.length];
+		for (int seat = 0; seat < players.length; seat++) {
+			players[seat] = new Bot(Counter.playerSymbols[seat]);
+			if (evaluator != null) {
+				players[seat].setEvaluator((seating[seat] == 1) ? evaluator : null);
+			} else {
+				players[seat].setBestReplySearch(seating[seat] == 1);
+			}
+			players[seat].setNodeBudget(nodeBudget);
+			players[seat].setMoveTime(moveMillis);
+			seats[seating[seat]]++;
+		}
+
+		LineWindows windows = LineWindows.of(board);
+		boolean finished = board.checkDraw() || windows.isDead();
+		while (!finished) {
+			for (int seat = 0; seat < players.length && !finished; seat++) {
+				Bot player = players[seat];
+				char symbol = player.counter.getSymbol();
+				int engine = seating[seat];
+
+				long start = System.nanoTime();
+				int move = player.getNextMove(board);
+				nanos[engine] += System.nanoTime() - start;
+				nodes[engine] += player.search.getNodeCount();
+				depths[engine] += player.search.getDepthReached();
+				moves[engine]++;
+
+				board.placeCounter(symbol, move);
+				windows.update(board, move);
+				if (board.checkWin(symbol)) {
+					wins[engine]++;
+					finished = true;
+				} else if (board.checkDraw() || windows.isDead()) {
+					draws++;
+					finished = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints the totals of each engine. Win rate is wins per seat played, so an engine as strong
+	 * as its opponents wins about a third of its seats less the share of drawn games.
+	 */
+	private void printResults() {
+		System.out.printf("%-12s %6s %6s %9s %12s %9s %8s%n", "engine", "seats", "wins", "win rate", "nodes/s",
+				"ms/move", "depth");
+		for (int engine = 0; engine < engines.length; engine++) {
+			double seconds = nanos[engine] / 1e9;
+			System.out.println(String.format(Locale.ROOT, "%-12s %6d %6d %8.1f%% %12.0f %9.2f %8.2f", engines[engine],
+					seats[engine], wins[engine], 100.0 * wins[engine] / Math.max(seats[engine], 1),
+					nodes[engine] / Math.max(seconds, 1e-9), 1000 * seconds / Math.max(moves[engine], 1),
+					(double) depths[engine] / Math.max(moves[engine], 1)));
+		}
+		System.out.println("Draws: " + draws);
+	}
+}
\ No newline at end of file
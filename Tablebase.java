@@ -0,0 +1,348 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped table of exact game outcomes for the positions of a small variant.
+ *
+ * Only positions reachable in play are stored, in an open addressing table keyed by their
+ * Zobrist hash, so the table grows with the positions a variant really has rather than with
+ * every way of filling its board. A position where the player to move can complete a line is
+ * not stored, as its outcome is plain from the board, and neither is anything only reachable
+ * through one. Probing is a hash and a few slot reads, then for a position not stored a look
+ * for lines on the board and at the playable squares. Each stored position holds one 2 bit
+ * outcome per player, where the outcome is the paranoid result for that player: they maximise
+ * and every other player minimises. The file is written by TablebaseGenerator.
+ *
+ * Variants smaller than the game board are played in its bottom left corner. A tablebase of the
+ * whole board, named by the connectn.tablebase property, lets the robots' searches score
+ * positions of its win amount exactly.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see TablebaseGenerator.java
+ *
+ */
+public class Tablebase {
+	public static final int UNKNOWN = 0;
+	public static final int LOSS = 1;
+	public static final int DRAW = 2;
+	public static final int WIN = 3;
+
+	static final int MAGIC = 0x43345442;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+	//Largest table whose keys fit a single mapping, which must be under 2 GiB, kept at most half full
+	static final int MAX_SLOTS = 1 << 27;
+	static final long MAX_POSITIONS = MAX_SLOTS / 2;
+	private static final int KEY_BYTES = 8;
+	private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final int width;
+	private final int height;
+	private final int winAmount;
+	private final int players;
+	private final long positions;
+	private final int slots;
+	private MappedByteBuffer keys;
+	private MappedByteBuffer outcomes;
+
+	/**
+	 * Constructor sets the variant and the size of its table.
+	 * @param width
+	 * 		number of columns
+	 * @param height
+	 * 		number of rows
+	 * @param winAmount
+	 * 		the number of counters in a row needed to win
+	 * @param players
+	 * 		the number of players
+	 * @param positions
+	 * 		the number of positions stored
+	 */
+	Tablebase(int width, int height, int winAmount, int players, long positions) {
+		this.width = width;
+		this.height = height;
+		this.winAmount = winAmount;
+		this.players = players;
+		this.positions = positions;
+		this.slots = slotCount(positions);
+	}
+
+	/**
+	 * Number of slots holding a number of positions with at least half the slots empty.
+	 * @param positions
+	 * 		the number of positions to store
+	 * @return slots
+	 * 		a power of two
+	 */
+	static int slotCount(long positions) {
+		if (positions > MAX_POSITIONS) {
+			throw new IllegalArgumentException("Variant has too many positions for a tablebase: " + positions);
+		}
+		return Integer.highestOneBit((int) Math.max(positions * 2 - 1, 1)) << 1;
+	}
+
+	/**
+	 * Opens a tablebase file for probing.
+	 * @param file
+	 * 		the file written by TablebaseGenerator
+	 * @return tablebase
+	 * 		the mapped tablebase
+	 * @throws IOException
+	 * 		if the file cannot be read or is not a tablebase
+	 */
+	public static Tablebase open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("Not a tablebase file: " + file);
+			}
+			Tablebase tablebase;
+			try {
+				tablebase = new Tablebase(header.getInt(8), header.getInt(12), header.getInt(16), header.getInt(20),
+						header.getLong(24));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Tablebase file is damaged: " + file);
+			}
+			if (channel.size() < tablebase.fileBytes()) {
+				throw new IOException("Tablebase file is truncated: " + file);
+			}
+			tablebase.map(channel, FileChannel.MapMode.READ_ONLY);
+			return tablebase;
+		}
+	}
+
+	/**
+	 * Checks whether the tablebase answers the positions of a game, which needs a tablebase of
+	 * the whole board for the game's win amount and players.
+	 * @param board
+	 * 		the game board
+	 * @return covered
+	 */
+	public boolean covers(Board board) {
+		return width == Board.BOARD_WIDTH && height == Board.BOARD_HEIGHT && winAmount == board.getGameWinAmount()
+				&& players == Counter.playerSymbols.length;
+	}
+
+	/**
+	 * Finds the exact outcome of a position for one player, with the player to move found from
+	 * the number of counters on the board.
+	 * @param board
+	 * 		the board, with the variant's counters in its bottom left corner
+	 * @param perspective
+	 * 		the counter of the player the outcome is for
+	 * @return outcome
+	 * 		WIN, DRAW or LOSS, or UNKNOWN if the game is over or the position cannot arise in play
+	 */
+	public int probe(Board board, char perspective) {
+		int counters = 0;
+		for (char[] row : board.getBoard()) {
+			for (char square : row) {
+				counters += (square != Board.BOARD_SPACE) ? 1 : 0;
+			}
+		}
+		return probe(board, Counter.playerSymbols[counters % players], perspective);
+	}
+
+	/**
+	 * Finds the exact outcome of a position for one player, given the player to move.
+	 * @param board
+	 * 		the board, with the variant's counters in its bottom left corner
+	 * @param toMove
+	 * 		the counter of the player whose turn it is
+	 * @param perspective
+	 * 		the counter of the player the outcome is for
+	 * @return outcome
+	 * 		WIN, DRAW or LOSS, or UNKNOWN if the game is over or the position is not one the
+	 * 		tablebase holds
+	 */
+	int probe(Board board, char toMove, char perspective) {
+		int slot = find(Zobrist.hash(board, toMove));
+		if (slot >= 0) {
+			return read(slot, Counter.indexOf(perspective));
+		}
+
+		//Positions the player to move wins at once are not stored, unless the game is already over
+		int mover = Counter.indexOf(toMove);
+		char[][] cells = board.getBoard();
+		if (mover >= players || hasLine(cells, Counter.playerSymbols[(mover + players - 1) % players])
+				|| !canComplete(cells, toMove)) {
+			return UNKNOWN;
+		}
+		return (perspective == toMove) ? WIN : LOSS;
+	}
+
+	/**
+	 * Checks whether a player has a line of winAmount counters within the variant.
+	 * @param cells
+	 * 		the squares of the game board, top row first
+	 * @param player
+	 * 		the player's counter
+	 * @return line
+	 */
+	boolean hasLine(char[][] cells, char player) {
+		for (int row = Board.BOARD_HEIGHT - height; row < Board.BOARD_HEIGHT; row++) {
+			for (int column = 0; column < width; column++) {
+				if (cells[row][column] == player && lineThrough(cells, row, column, player)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a player can complete a line with their next counter within the variant.
+	 * @param cells
+	 * 		the squares of the game board, top row first
+	 * @param player
+	 * 		the player's counter
+	 * @return complete
+	 */
+	boolean canComplete(char[][] cells, char player) {
+		for (int column = 0; column < width; column++) {
+			int row = Board.BOARD_HEIGHT - 1;
+			while (row >= Board.BOARD_HEIGHT - height && cells[row][column] != Board.BOARD_SPACE) {
+				row--;
+			}
+			if (row >= Board.BOARD_HEIGHT - height && lineThrough(cells, row, column, player)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a counter on a square would be part of a line of winAmount counters.
+	 */
+	private boolean lineThrough(char[][] cells, int row, int column, char player) {
+		for (int[] direction : DIRECTIONS) {
+			int length = 1;
+			for (int sign = -1; sign <= 1; sign += 2) {
+				int c = column + sign * direction[0];
+				int r = row - sign * direction[1];
+				while (c >= 0 && c < width && r >= Board.BOARD_HEIGHT - height && r < Board.BOARD_HEIGHT
+						&& cells[r][c] == player) {
+					length++;
+					c += sign * direction[0];
+					r -= sign * direction[1];
+				}
+			}
+			if (length >= winAmount) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Maps the key and outcome sections of an open file.
+	 */
+	void map(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+		keys = channel.map(mode, HEADER_BYTES, (long) slots * KEY_BYTES);
+		keys.order(ByteOrder.LITTLE_ENDIAN);
+		outcomes = channel.map(mode, HEADER_BYTES + (long) slots * KEY_BYTES, slots);
+	}
+
+	/**
+	 * Finds the slot of a stored position.
+	 * @param key
+	 * 		the Zobrist hash of the position with its player to move
+	 * @return slot
+	 * 		the position's slot, or -1 if it is not stored
+	 */
+	int find(long key) {
+		int slot = (int) (key >>> 32) & (slots - 1);
+		//A slot is used once its outcomes are written, which every stored position has
+		while (outcomes.get(slot) != 0) {
+			if ((long) LONGS.get(keys, slot * KEY_BYTES) == key) {
+				return slot;
+			}
+			slot = (slot + 1) & (slots - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the outcome of a stored position for one player.
+	 */
+	int read(int slot, int player) {
+		return (outcomes.get(slot) >>> (player * 2)) & 3;
+	}
+
+	/**
+	 * Stores the outcomes of a position, claiming a free slot for its key. Positions may be
+	 * stored from several threads at once, each position once.
+	 * @param key
+	 * 		the Zobrist hash of the position with its player to move
+	 * @param outcome
+	 * 		the outcome of each player
+	 */
+	void write(long key, int[] outcome) {
+		int packed = 0;
+		for (int player = 0; player < players; player++) {
+			packed |= outcome[player] << (player * 2);
+		}
+		int slot = (int) (key >>> 32) & (slots - 1);
+		while (!LONGS.compareAndSet(keys, slot * KEY_BYTES, 0L, key)) {
+			slot = (slot + 1) & (slots - 1);
+		}
+		outcomes.put(slot, (byte) packed);
+	}
+
+	/**
+	 * Bytes of the whole file, header included.
+	 */
+	long fileBytes() {
+		return HEADER_BYTES + (long) slots * (KEY_BYTES + 1);
+	}
+
+	/**
+	 * Accessor for the number of columns.
+	 * @return width
+	 */
+	int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Accessor for the number of rows.
+	 * @return height
+	 */
+	int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Accessor for the number of counters in a row needed to win.
+	 * @return winAmount
+	 */
+	int getWinAmount() {
+		return winAmount;
+	}
+
+	/**
+	 * Accessor for the number of players.
+	 * @return players
+	 */
+	int getPlayers() {
+		return players;
+	}
+
+	/**
+	 * Accessor for the number of positions stored.
+	 * @return positions
+	 */
+	long getPositions() {
+		return positions;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,541 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a Tablebase file by retrograde analysis of the reachable positions of a small variant.
+ *
+ * Positions are first found forwards from the empty board, one counter count at a time, each
+ * count's positions being expanded in parallel. A position where the player to move can complete
+ * a line is left out and not expanded, so the positions found are only those the tablebase
+ * stores. Each counter count is written to a temporary file as soon as it is found, so the heap
+ * only holds the positions of two counter counts at once. The positions are then solved from the
+ * last counter count back to the empty board, so the children of every position are already
+ * solved when it is reached, and the outcomes are written straight into the memory-mapped file.
+ *
+ * Run with "check" and a tablebase of the whole board to compare every position it answers with
+ * a search of the position to the end of the game.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see Tablebase.java
+ *
+ */
+public class TablebaseGenerator {
+	//Bits of each square in a packed position, which holds 0 when empty or the player index plus one
+	private static final int SQUARE_BITS = 2;
+	private static final int SQUARES_PER_WORD = Long.SIZE / SQUARE_BITS;
+	private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+	private final int width;
+	private final int height;
+	private final int winAmount;
+	private final int players;
+	private Tablebase table;
+
+	/**
+	 * Main function to generate or check a tablebase from the command line.
+	 * @param args
+	 * 		width, height, N, optional player count and optional output file, or "check" and a file
+	 * @throws IOException
+	 * 		if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 2 && args[0].equals("check")) {
+			//Non-zero exit status lets build scripts fail on any difference
+			System.exit(check(Tablebase.open(Paths.get(args[1]))) ? 0 : 1);
+		}
+		if (args.length < 3) {
+			System.out.println("Usage: TablebaseGenerator <width> <height> <N> [players] [file]");
+			System.out.println("       TablebaseGenerator check <file>");
+			return;
+		}
+		int width = Integer.parseInt(args[0]);
+		int height = Integer.parseInt(args[1]);
+		int N = Integer.parseInt(args[2]);
+		int players = (args.length > 3) ? Integer.parseInt(args[3]) : Counter.playerSymbols.length;
+		Path file = Paths.get((args.length > 4) ? args[4] : fileName(width, height, N, players));
+
+		TablebaseGenerator generator = new TablebaseGenerator(width, height, N, players);
+		long start = System.currentTimeMillis();
+		generator.generate(file);
+		System.out.println("Solved " + generator.table.getPositions() + " positions in "
+				+ (System.currentTimeMillis() - start) + " ms, written to " + file);
+
+		Board empty = new Board(N);
+		for (int player = 0; player < players; player++) {
+			System.out.println("Empty board outcome for " + Counter.playerSymbols[player] + ": "
+					+ outcomeName(generator.table.probe(empty, Counter.playerSymbols[player])));
+		}
+	}
+
+	/**
+	 * Constructor validates the variant.
+	 * @param width
+	 * 		number of columns, 1-7
+	 * @param height
+	 * 		number of rows, 1-6
+	 * @param winAmount
+	 * 		the number of counters in a row needed to win, 2-7
+	 * @param players
+	 * 		the number of players, 2 up to the number of player symbols
+	 */
+	public TablebaseGenerator(int width, int height, int winAmount, int players) {
+		if (width < 1 || width > Board.BOARD_WIDTH || height < 1 || height > Board.BOARD_HEIGHT) {
+			throw new IllegalArgumentException("Board must be between 1x1 and " + Board.BOARD_WIDTH + "x" + Board.BOARD_HEIGHT);
+		}
+		if (winAmount < 2 || winAmount > 7 || players < 2 || players > Counter.playerSymbols.length) {
+			throw new IllegalArgumentException("N must be 2-7 and players 2-" + Counter.playerSymbols.length);
+		}
+		this.width = width;
+		this.height = height;
+		this.winAmount = winAmount;
+		this.players = players;
+	}
+
+	/**
+	 * Default file name for a variant.
+	 * @return fileName
+	 */
+	static String fileName(int width, int height, int N, int players) {
+		return "tablebase-" + width + "x" + height + "-n" + N + "-p" + players + ".c4tb";
+	}
+
+	/**
+	 * Finds and solves every position of the variant and writes the tablebase file.
+	 * @param file
+	 * 		the file to create or overwrite
+	 * @throws IOException
+	 * 		if the file cannot be written
+	 */
+	public void generate(Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		List<Path> levels = new ArrayList<Path>();
+		try {
+			long positions = findPositions(directory, levels);
+			table = new Tablebase(width, height, winAmount, players, positions);
+
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION);
+				header.putInt(width).putInt(height).putInt(winAmount).putInt(players);
+				header.putLong(positions);
+				header.rewind();
+				channel.write(header, 0);
+
+				//Mapping read-write grows the file to hold every slot, initially all empty
+				table.map(channel, FileChannel.MapMode.READ_WRITE);
+
+				//Solve the most counters first so children are always ready before their parents
+				for (int counters = levels.size() - 1; counters >= 0; counters--) {
+					Level level = Level.read(levels.get(counters));
+					final int count = counters;
+					IntStream.range(0, level.size).parallel().forEach(i -> solve(level, i, count));
+				}
+			}
+		} finally {
+			for (Path level : levels) {
+				Files.deleteIfExists(level);
+			}
+		}
+	}
+
+	/**
+	 * Finds the positions of each counter count from the empty board, writing each count to a
+	 * temporary file.
+	 * @param directory
+	 * 		the directory to write the temporary files in
+	 * @param levels
+	 * 		receives the temporary file of each counter count
+	 * @return positions
+	 * 		the number of positions found
+	 * @throws IOException
+	 * 		if a temporary file cannot be written
+	 */
+	private long findPositions(Path directory, List<Path> levels) throws IOException {
+		Level level = new Level(1);
+		level.add(Zobrist.hash(new Board(winAmount), Counter.playerSymbols[0]), 0, 0);
+		level = level.compact();
+		long positions = 0;
+
+		for (int counters = 0; counters < width * height && level.size > 0; counters++) {
+			//Positions the player to move wins at once are left out, and so are their children
+			Level current = level;
+			final int count = counters;
+			boolean[] kept = new boolean[current.size];
+			IntStream.range(0, current.size).parallel().forEach(i -> kept[i] = !canComplete(current, i, count));
+
+			Level next = new Level(Math.max(current.size, 1) * width);
+			IntStream.range(0, current.size).parallel().filter(i -> kept[i]).forEach(i -> expand(current, i, count, next));
+
+			Path file = Files.createTempFile(directory, "tablebase-" + counters + "-", ".tmp");
+			levels.add(file);
+			positions += current.write(file, kept);
+			if (positions > Tablebase.MAX_POSITIONS) {
+				throw new IllegalArgumentException("Variant has more than " + Tablebase.MAX_POSITIONS + " positions");
+			}
+			level = next.compact();
+		}
+		return positions;
+	}
+
+	/**
+	 * Adds the children of a position still in play to the next counter count.
+	 */
+	private void expand(Level level, int index, int counters, Level next) {
+		int[][] grid = level.grid(index, width, height);
+		int mover = counters % players;
+		long key = level.keys.get(index) ^ Zobrist.turn(Counter.playerSymbols[mover])
+				^ Zobrist.turn(Counter.playerSymbols[(mover + 1) % players]);
+
+		for (int column = 0; column < width; column++) {
+			int row = freeRow(grid, column);
+			//A full board is a draw, which is not stored
+			if (row >= 0 && counters + 1 < width * height) {
+				long low = level.low[index];
+				long high = level.high[index];
+				int square = row * width + column;
+				long value = (long) (mover + 1) << ((square % SQUARES_PER_WORD) * SQUARE_BITS);
+				if (square < SQUARES_PER_WORD) {
+					low |= value;
+				} else {
+					high |= value;
+				}
+				next.add(key ^ squareKey(row, column, mover), low, high);
+			}
+		}
+	}
+
+	/**
+	 * Solves one position from the solved outcomes of its children and stores the result.
+	 */
+	private void solve(Level level, int index, int counters) {
+		int[][] grid = level.grid(index, width, height);
+		int mover = counters % players;
+		int next = (mover + 1) % players;
+		long key = level.keys.get(index) ^ Zobrist.turn(Counter.playerSymbols[mover])
+				^ Zobrist.turn(Counter.playerSymbols[next]);
+
+		//Paranoid rule - each player maximises their own outcome, all others minimise it
+		int[] outcomes = new int[players];
+		for (int player = 0; player < players; player++) {
+			outcomes[player] = (player == mover) ? Tablebase.LOSS : Tablebase.WIN;
+		}
+		for (int column = 0; column < width; column++) {
+			int row = freeRow(grid, column);
+			if (row < 0) {
+				continue;
+			}
+			grid[column][row] = mover;
+			long childKey = key ^ squareKey(row, column, mover);
+			int slot = (counters + 1 < width * height) ? table.find(childKey) : -1;
+			for (int player = 0; player < players; player++) {
+				int outcome;
+				if (slot >= 0) {
+					outcome = table.read(slot, player);
+				} else if (counters + 1 == width * height) {
+					outcome = Tablebase.DRAW;
+				} else {
+					//Children left out are those the next player wins at once
+					outcome = (player == next) ? Tablebase.WIN : Tablebase.LOSS;
+				}
+				if (player == mover) {
+					outcomes[player] = Math.max(outcomes[player], outcome);
+				} else {
+					outcomes[player] = Math.min(outcomes[player], outcome);
+				}
+			}
+			grid[column][row] = -1;
+		}
+		table.write(level.keys.get(index), outcomes);
+	}
+
+	/**
+	 * Checks whether the player to move in a position can complete a line with their next counter.
+	 */
+	private boolean canComplete(Level level, int index, int counters) {
+		int[][] grid = level.grid(index, width, height);
+		int mover = counters % players;
+		for (int column = 0; column < width; column++) {
+			int row = freeRow(grid, column);
+			if (row >= 0 && lineThrough(grid, column, row, mover)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a counter of a player in a square would be part of a line of winAmount counters.
+	 */
+	private boolean lineThrough(int[][] grid, int column, int row, int player) {
+		for (int[] direction : DIRECTIONS) {
+			int length = 1;
+			for (int sign = -1; sign <= 1; sign += 2) {
+				int c = column + sign * direction[0];
+				int r = row + sign * direction[1];
+				while (c >= 0 && c < width && r >= 0 && r < height && grid[c][r] == player) {
+					length++;
+					c += sign * direction[0];
+					r += sign * direction[1];
+				}
+			}
+			if (length >= winAmount) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Lowest empty row of a column, counted from the bottom, or -1 if it is full.
+	 */
+	private int freeRow(int[][] grid, int column) {
+		for (int row = 0; row < height; row++) {
+			if (grid[column][row] < 0) {
+				return row;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Zobrist key of a player's counter on a square of the variant, counted from the bottom left.
+	 */
+	private long squareKey(int row, int column, int player) {
+		return Zobrist.square(Board.BOARD_HEIGHT - 1 - row, column, Counter.playerSymbols[player]);
+	}
+
+	/**
+	 * Compares every position of a tablebase of the whole board that a game reaches without
+	 * passing a position the player to move wins at once, and every position the player to move
+	 * wins at once reached from one, with a search of the position to the end of the game from
+	 * the player to move, both without the tablebase and with it.
+	 * @param tablebase
+	 * 		the tablebase to check
+	 * @return passed
+	 * 		true if every probed outcome matched the searched outcome
+	 */
+	static boolean check(Tablebase tablebase) {
+		Board board = new Board(tablebase.getWinAmount());
+		if (!tablebase.covers(board)) {
+			System.out.println("Only tablebases of the whole " + Board.BOARD_WIDTH + "x" + Board.BOARD_HEIGHT
+					+ " board can be checked against the search");
+			return false;
+		}
+		int[] counts = new int[2];
+		check(tablebase, board, 0, new HashSet<Long>(), counts);
+		System.out.println("Checked " + counts[0] + " positions against the search: " + counts[1] + " mismatches");
+		return counts[1] == 0;
+	}
+
+	/**
+	 * Checks a position and the positions below it not yet checked, counting the positions
+	 * checked and mismatches.
+	 */
+	private static void check(Tablebase tablebase, Board board, int counters, Set<Long> checked, int[] counts) {
+		char toMove = Counter.playerSymbols[counters % Counter.playerSymbols.length];
+		if (!checked.add(Zobrist.hash(board, toMove))) {
+			return;
+		}
+		int expected = tablebase.probe(board, toMove);
+		int empty = Board.BOARD_WIDTH * Board.BOARD_HEIGHT - counters;
+
+		BotSearch search = new BotSearch(toMove);
+		search.getBestColumnMTDF(board, empty);
+		int searched = outcomeOf(search.getBestScore());
+		search = new BotSearch(toMove);
+		search.setTablebase(tablebase);
+		search.getBestColumnMTDF(board, empty);
+		int probed = outcomeOf(search.getBestScore());
+		counts[0]++;
+		if (expected != searched || probed != searched) {
+			counts[1]++;
+			System.out.println("Mismatch after " + counters + " counters: tablebase " + outcomeName(expected)
+					+ ", search " + outcomeName(searched) + ", search with tablebase " + outcomeName(probed));
+		}
+
+		if (tablebase.canComplete(board.getBoard(), toMove)) {
+			return;
+		}
+		char next = Counter.playerSymbols[(counters + 1) % Counter.playerSymbols.length];
+		for (int column = 1; column <= Board.BOARD_WIDTH; column++) {
+			if (board.getBoard()[0][column-1] == Board.BOARD_SPACE) {
+				Board child = new Board(board.getGameWinAmount());
+				char[][] cells = new char[Board.BOARD_HEIGHT][];
+				for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+					cells[row] = board.getBoard()[row].clone();
+				}
+				child.setBoard(cells);
+				child.placeCounter(toMove, column);
+				if (!child.checkDraw() && tablebase.probe(child, next) != Tablebase.UNKNOWN) {
+					check(tablebase, child, counters + 1, checked, counts);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Outcome of a search score searched to the end of the game.
+	 */
+	private static int outcomeOf(int score) {
+		if (score >= BotSearch.WIN_SCORE / 2) {
+			return Tablebase.WIN;
+		}
+		return (score <= BotSearch.LOSS_SCORE / 2) ? Tablebase.LOSS : Tablebase.DRAW;
+	}
+
+	/**
+	 * Readable name of an outcome.
+	 */
+	static String outcomeName(int outcome) {
+		String[] names = {"unknown", "loss", "draw", "win"};
+		return names[outcome];
+	}
+
+	/**
+	 * Positions of one counter count, keyed by their Zobrist hash with the player to move, each
+	 * packed two bits per square from the bottom left, a row at a time.
+	 */
+	private static class Level {
+		private final AtomicLongArray keys;
+		private final long[] low;
+		private final long[] high;
+		private int size;
+
+		/**
+		 * Constructor creates an empty level with room for the given number of positions.
+		 */
+		Level(int capacity) {
+			int slots = Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+			keys = new AtomicLongArray(slots);
+			low = new long[slots];
+			high = new long[slots];
+		}
+
+		/**
+		 * Constructor wraps positions already known to be different.
+		 */
+		private Level(long[] keys, long[] low, long[] high) {
+			this.keys = new AtomicLongArray(keys);
+			this.low = low;
+			this.high = high;
+			this.size = keys.length;
+		}
+
+		/**
+		 * Adds a position unless it is already there. Positions may be added from several threads
+		 * at once; the packed squares are written by the thread that claims the key's slot.
+		 */
+		void add(long key, long squaresLow, long squaresHigh) {
+			int mask = keys.length() - 1;
+			int slot = (int) (key >>> 32) & mask;
+			while (true) {
+				long current = keys.get(slot);
+				if (current == key) {
+					return;
+				}
+				if (current == 0 && keys.compareAndSet(slot, 0, key)) {
+					low[slot] = squaresLow;
+					high[slot] = squaresHigh;
+					return;
+				}
+				if (keys.get(slot) != key) {
+					slot = (slot + 1) & mask;
+				}
+			}
+		}
+
+		/**
+		 * Copies the positions added into arrays without empty slots.
+		 */
+		Level compact() {
+			int count = 0;
+			for (int slot = 0; slot < keys.length(); slot++) {
+				count += (keys.get(slot) != 0) ? 1 : 0;
+			}
+			long[] packedKeys = new long[count];
+			long[] packedLow = new long[count];
+			long[] packedHigh = new long[count];
+			int index = 0;
+			for (int slot = 0; slot < keys.length(); slot++) {
+				if (keys.get(slot) != 0) {
+					packedKeys[index] = keys.get(slot);
+					packedLow[index] = low[slot];
+					packedHigh[index] = high[slot];
+					index++;
+				}
+			}
+			return new Level(packedKeys, packedLow, packedHigh);
+		}
+
+		/**
+		 * Unpacks a position into a grid indexed by column then row from the bottom, holding the
+		 * player index of each counter or -1 for an empty square.
+		 */
+		int[][] grid(int index, int width, int height) {
+			int[][] grid = new int[width][height];
+			for (int square = 0; square < width * height; square++) {
+				long word = (square < SQUARES_PER_WORD) ? low[index] : high[index];
+				int value = (int) (word >>> ((square % SQUARES_PER_WORD) * SQUARE_BITS)) & 3;
+				grid[square % width][square / width] = value - 1;
+			}
+			return grid;
+		}
+
+		/**
+		 * Writes the positions marked to keep to a file.
+		 * @return written
+		 * 		the number of positions written
+		 */
+		long write(Path file, boolean[] kept) throws IOException {
+			long written = 0;
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+				for (int index = 0; index < size; index++) {
+					if (kept[index]) {
+						out.writeLong(keys.get(index));
+						out.writeLong(low[index]);
+						out.writeLong(high[index]);
+						written++;
+					}
+				}
+			}
+			return written;
+		}
+
+		/**
+		 * Reads the positions written to a file.
+		 */
+		static Level read(Path file) throws IOException {
+			int count = (int) (Files.size(file) / (3 * Long.BYTES));
+			long[] keys = new long[count];
+			long[] low = new long[count];
+			long[] high = new long[count];
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				for (int index = 0; index < count; index++) {
+					keys[index] = in.readLong();
+					low[index] = in.readLong();
+					high[index] = in.readLong();
+				}
+			}
+			return new Level(keys, low, high);
+		}
+	}
+}
\ No newline at end of file
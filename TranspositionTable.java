@@ -0,0 +1,275 @@
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table remembering bounds of previously searched positions.
+ *
+ * Each slot holds the position key and one packed entry containing the lower bound, upper bound,
+ * remaining depth and best column found for the position. The key is stored XORed with the entry,
+ * so a slot torn by a concurrent write fails the key check and reads as empty instead of
+ * returning another position's bounds. Subclasses may keep the slots outside the heap.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see BotSearch.java
+ *
+ */
+public class TranspositionTable {
+	public static final long EMPTY = 0;
+	private static final int SCORE_BITS = 24;
+	private static final int SCORE_OFFSET = 1 << (SCORE_BITS - 1);
+	private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+	private static final long VALID = 1L << 63;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+	private long probes;
+	private long hits;
+
+	/**
+	 * Constructor allocates the table, rounding the slot count up to a power of two.
+	 * @param slots
+	 * 		the minimum number of slots in the table
+	 */
+	public TranspositionTable(int slots) {
+		this(slots, true);
+	}
+
+	/**
+	 * Constructor for subclasses that provide their own slot storage.
+	 * @param slots
+	 * 		the minimum number of slots in the table
+	 * @param onHeap
+	 * 		true to allocate the slots as heap arrays
+	 */
+	TranspositionTable(int slots, boolean onHeap) {
+		int size = slotCount(slots);
+		keys = onHeap ? new long[size] : null;
+		entries = onHeap ? new long[size] : null;
+		mask = size - 1;
+	}
+
+	/**
+	 * Rounds a slot count up to a power of two.
+	 * @param slots
+	 * 		the minimum number of slots
+	 * @return size
+	 * 		the number of slots a table of that size uses
+	 */
+	static int slotCount(int slots) {
+		return Integer.highestOneBit(Math.max(slots - 1, 1)) << 1;
+	}
+
+	/**
+	 * Finds the entry stored for a position.
+	 * @param key
+	 * 		the hash key of the position
+	 * @return entry
+	 * 		the packed entry, or EMPTY if the position is not stored
+	 */
+	long probe(long key) {
+		int slot = (int) key & mask;
+		long entry = readSlot(slot, key);
+		probes++;
+
+		if (entry != EMPTY) {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Finds the facts stored for a board that hold whoever searches it. A table of one player's
+	 * searches keeps no such facts.
+	 * @param position
+	 * 		the hash key of the board without the player to move
+	 * @param perspective
+	 * 		the counter of the player the search is for
+	 * @return facts
+	 * 		the packed position facts, or PositionFacts.UNKNOWN
+	 */
+	long probeFacts(long position, char perspective) {
+		return PositionFacts.UNKNOWN;
+	}
+
+	/**
+	 * Stores the facts of a board for other searches of it, if the table keeps them.
+	 * @param position
+	 * 		the hash key of the board without the player to move
+	 * @param facts
+	 * 		the packed position facts
+	 * @param perspective
+	 * 		the counter of the player whose search found them
+	 */
+	void storeFacts(long position, long facts, char perspective) {
+	}
+
+	/**
+	 * Stores the bounds of a searched position, replacing any previous slot content.
+	 * @param key
+	 * 		the hash key of the position
+	 * @param depth
+	 * 		the remaining depth the position was searched to
+	 * @param lower
+	 * 		the lower bound of the position score
+	 * @param upper
+	 * 		the upper bound of the position score
+	 * @param column
+	 * 		the best column found (1-7), or 0 if none
+	 */
+	void store(long key, int depth, int lower, int upper, int column) {
+		int slot = (int) key & mask;
+		writeSlot(slot, key, pack(depth, lower, upper, column));
+	}
+
+	/**
+	 * Reads a slot, checking it holds the given key.
+	 * @param slot
+	 * 		the slot to read
+	 * @param key
+	 * 		the hash key of the position
+	 * @return entry
+	 * 		the packed entry, or EMPTY if the slot holds another position or was torn
+	 */
+	long readSlot(int slot, long key) {
+		long entry = entries[slot];
+		return (entry != EMPTY && (keys[slot] ^ entry) == key) ? entry : EMPTY;
+	}
+
+	/**
+	 * Writes a slot.
+	 * @param slot
+	 * 		the slot to write
+	 * @param key
+	 * 		the hash key of the position
+	 * @param entry
+	 * 		the packed entry
+	 */
+	void writeSlot(int slot, long key, long entry) {
+		keys[slot] = key ^ entry;
+		entries[slot] = entry;
+	}
+
+	/**
+	 * Accessor for the number of slots.
+	 * @return size
+	 */
+	public int getSize() {
+		return mask + 1;
+	}
+
+	/**
+	 * Finds the heap memory taken by the slots.
+	 * @return bytes
+	 * 		the size of the slot arrays, or 0 if the slots are kept outside the heap
+	 */
+	long getBytes() {
+		return (keys != null) ? 2L * Long.BYTES * getSize() : 0;
+	}
+
+	/**
+	 * Creates a table of another size holding as many of this table's entries as fit, keeping
+	 * the deeper entry where two fall in the same slot. Entries written while copying may be lost.
+	 * Only tables kept on the heap can be resized.
+	 * @param slots
+	 * 		the minimum number of slots in the new table
+	 * @return table
+	 * 		the new table, of the same kind as this one
+	 */
+	TranspositionTable resized(int slots) {
+		TranspositionTable copy = create(slots);
+		for (int slot = 0; slot < getSize(); slot++) {
+			long entry = entries[slot];
+			if (entry != EMPTY) {
+				long key = keys[slot] ^ entry;
+				int target = (int) key & copy.mask;
+				long previous = copy.entries[target];
+				if (previous == EMPTY || depthOf(previous) <= depthOf(entry)) {
+					copy.writeSlot(target, key, entry);
+				}
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Creates an empty table of the same kind as this one.
+	 * @param slots
+	 * 		the minimum number of slots in the new table
+	 * @return table
+	 */
+	TranspositionTable create(int slots) {
+		return new TranspositionTable(slots);
+	}
+
+	/**
+	 * Clears every slot and the hit statistics.
+	 */
+	void clear() {
+		if (keys != null) {
+			Arrays.fill(keys, 0);
+			Arrays.fill(entries, EMPTY);
+		}
+		probes = 0;
+		hits = 0;
+	}
+
+	/**
+	 * Accessor for the number of probes made.
+	 * Counts are approximate when the table is shared between threads.
+	 * @return probes
+	 */
+	public long getProbes() {
+		return probes;
+	}
+
+	/**
+	 * Accessor for the number of probes that found an entry.
+	 * @return hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Packs the entry fields into one long.
+	 */
+	static long pack(int depth, int lower, int upper, int column) {
+		long entry = VALID;
+		entry |= (long) (lower + SCORE_OFFSET) & SCORE_MASK;
+		entry |= ((long) (upper + SCORE_OFFSET) & SCORE_MASK) << SCORE_BITS;
+		entry |= (long) (depth & 0xFF) << (2 * SCORE_BITS);
+		entry |= (long) (column & 0xF) << (2 * SCORE_BITS + 8);
+		return entry;
+	}
+
+	/**
+	 * Unpacks the lower bound from an entry.
+	 */
+	static int lowerOf(long entry) {
+		return (int) (entry & SCORE_MASK) - SCORE_OFFSET;
+	}
+
+	/**
+	 * Unpacks the upper bound from an entry.
+	 */
+	static int upperOf(long entry) {
+		return (int) ((entry >>> SCORE_BITS) & SCORE_MASK) - SCORE_OFFSET;
+	}
+
+	/**
+	 * Unpacks the searched depth from an entry.
+	 */
+	static int depthOf(long entry) {
+		return (int) (entry >>> (2 * SCORE_BITS)) & 0xFF;
+	}
+
+	/**
+	 * Unpacks the best column from an entry.
+	 */
+	static int columnOf(long entry) {
+		return (int) (entry >>> (2 * SCORE_BITS + 8)) & 0xF;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+import java.util.Random;
+
+/**
+ * Zobrist hashing of board positions for the search transposition table.
+ *
+ * @author Jordan Koulouris
+ * @version 1.0
+ * @release 12/01/2018
+ * @see TranspositionTable.java
+ *
+ */
+public class Zobrist {
+	//Fixed seed so keys are identical in every run of the programme
+	private static final long SEED = 0x436F6E6E6563744EL;
+	private static final long[][] CELL_KEYS;
+	private static final long[] TURN_KEYS;
+	private static final long[] PERSPECTIVE_KEYS;
+	private static final long[] WIN_AMOUNT_KEYS;
+	private static final long BEST_REPLY_KEY;
+
+	static {
+		Random random = new Random(SEED);
+		int cells = Board.BOARD_HEIGHT * Board.BOARD_WIDTH;
+		int players = Counter.playerSymbols.length;
+
+		CELL_KEYS = new long[cells][players];
+		for (int cell = 0; cell < cells; cell++) {
+			for (int player = 0; player < players; player++) {
+				CELL_KEYS[cell][player] = random.nextLong();
+			}
+		}
+		TURN_KEYS = new long[players];
+		PERSPECTIVE_KEYS = new long[players];
+		for (int player = 0; player < players; player++) {
+			TURN_KEYS[player] = random.nextLong();
+			PERSPECTIVE_KEYS[player] = random.nextLong();
+		}
+		WIN_AMOUNT_KEYS = new long[Board.BOARD_WIDTH + 1];
+		for (int n = 0; n < WIN_AMOUNT_KEYS.length; n++) {
+			WIN_AMOUNT_KEYS[n] = random.nextLong();
+		}
+		//Drawn last so the keys above match those of earlier versions
+		BEST_REPLY_KEY = random.nextLong();
+	}
+
+	/**
+	 * Computes the hash key of a board with the given player to move.
+	 * @param board
+	 * 		the board to hash
+	 * @param toMove
+	 * 		the counter of the player whose turn it is
+	 * @return key
+	 * 		64 bit key for the position
+	 */
+	static long hash(Board board, char toMove) {
+		return position(board) ^ turn(toMove);
+	}
+
+	/**
+	 * Computes the hash key of the counters on a board, whoever is to move.
+	 * @param board
+	 * 		the board to hash
+	 * @return key
+	 * 		64 bit key for the board
+	 */
+	static long position(Board board) {
+		char[][] cells = board.getBoard();
+		long key = WIN_AMOUNT_KEYS[board.getGameWinAmount()];
+
+		for (int row = 0; row < Board.BOARD_HEIGHT; row++) {
+			for (int column = 0; column < Board.BOARD_WIDTH; column++) {
+				if (cells[row][column] != Board.BOARD_SPACE) {
+					key ^= CELL_KEYS[row * Board.BOARD_WIDTH + column][Counter.indexOf(cells[row][column])];
+				}
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Key mixed into a board hash for one player's counter on one square, so a hash can be
+	 * updated a counter at a time.
+	 * @param row
+	 * 		the row of the square, 0 at the top
+	 * @param column
+	 * 		the column of the square, 0 at the left
+	 * @param player
+	 * 		the counter on the square
+	 * @return key
+	 * 		square key for the counter
+	 */
+	static long square(int row, int column, char player) {
+		return CELL_KEYS[row * Board.BOARD_WIDTH + column][Counter.indexOf(player)];
+	}
+
+	/**
+	 * Key mixed into a board hash for the player to move.
+	 * @param toMove
+	 * 		the counter of the player whose turn it is
+	 * @return key
+	 * 		turn key for the player
+	 */
+	static long turn(char toMove) {
+		return TURN_KEYS[Counter.indexOf(toMove)];
+	}
+
+	/**
+	 * Key mixed into a position hash so scores from different players are kept apart.
+	 * @param player
+	 * 		the counter of the player the scores are relative to
+	 * @return key
+	 * 		perspective key for the player
+	 */
+	static long perspective(char player) {
+		return PERSPECTIVE_KEYS[Counter.indexOf(player)];
+	}
+
+	/**
+	 * Key mixed into a position hash so Best-Reply Search scores are kept apart from paranoid
+	 * minimax scores in a shared table.
+	 * @return key
+	 * 		Best-Reply Search key
+	 */
+	static long bestReply() {
+		return BEST_REPLY_KEY;
+	}
+}
\ No newline at end of file